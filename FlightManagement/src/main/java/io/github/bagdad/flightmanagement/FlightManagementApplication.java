@@ -1,9 +1,15 @@
 package io.github.bagdad.flightmanagement;
 
+import io.github.bagdad.models.config.DataSourceConfig;
+import io.github.bagdad.models.config.TracingConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
+@EnableScheduling
 @SpringBootApplication
+@Import({DataSourceConfig.class, TracingConfig.class})
 public class FlightManagementApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,46 @@
+package io.github.bagdad.flightmanagement.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Consumption of the booking queues. Bound next to the shared
+ * {@link io.github.bagdad.models.config.MessagingProperties} under the same prefix.
+ */
+@ConfigurationProperties(prefix = "messaging")
+@Getter
+@Setter
+public class BookingQueueProperties {
+
+    /**
+     * Number of flight-keyed booking queues. Zero keeps the shared booking.* queues.
+     */
+    private int partitions = 0;
+
+    private Batch batch = new Batch();
+
+    @Getter
+    @Setter
+    public static class Batch {
+
+        /**
+         * Consume booking.created in batches instead of one message at a time.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of messages drained into one batch.
+         */
+        private int size = 100;
+
+        /**
+         * How long the consumer waits for more messages before handing over a partial batch.
+         */
+        private Duration receiveTimeout = Duration.ofMillis(50);
+
+    }
+
+}
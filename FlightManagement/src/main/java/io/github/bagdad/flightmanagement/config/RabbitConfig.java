@@ -1,23 +1,35 @@
 package io.github.bagdad.flightmanagement.config;
 
+import io.github.bagdad.models.config.MessagingConfig;
+import io.github.bagdad.models.config.MessagingProperties;
 import io.github.bagdad.models.events.*;
+import io.github.bagdad.models.messaging.BinaryEventMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.annotation.EnableRabbit;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.DefaultClassMapper;
 import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 
 @EnableRabbit
 @Configuration
+@Import(MessagingConfig.class)
+@EnableConfigurationProperties(BookingQueueProperties.class)
 public class RabbitConfig {
 
     public static final String EXCHANGE = "booking-exchange";
@@ -25,13 +37,26 @@ public class RabbitConfig {
     public static final String BOOKING_CREATED_QUEUE = "booking.created.queue";
     public static final String BOOKING_CANCELLED_QUEUE = "booking.cancelled.queue";
     public static final String BOOKING_UPDATED_QUEUE = "booking.updated.queue";
+    public static final String BOOKING_BATCH_CREATED_QUEUE = "booking.batch-created.queue";
+    public static final String BOOKING_BATCH_CANCELLED_QUEUE = "booking.batch-cancelled.queue";
 
 
     public static final String BOOKING_CREATED_ROUTING_KEY = "booking.created";
     public static final String BOOKING_CONFIRMED_ROUTING_KEY = "booking.confirmed";
     public static final String BOOKING_UPDATED_ROUTING_KEY = "booking.updated";
+    public static final String BOOKING_BATCH_CREATED_ROUTING_KEY = "booking.batch-created";
+    public static final String BOOKING_BATCH_CANCELLED_ROUTING_KEY = "booking.batch-cancelled";
     public static final String BOOKING_REJECTED_ROUTING_KEY = "booking.rejected";
     public static final String FLIGHT_CANCELLED_ROUTING_KEY = "flight.cancelled";
+    public static final String FLIGHTS_CANCELLED_ROUTING_KEY = "flights.cancelled";
+
+    public static final String BOOKING_PARTITIONED_EXCHANGE = "booking-partitioned-exchange";
+    public static final String BOOKING_PARTITION_QUEUE_PREFIX = "booking.partition.";
+    public static final String FLIGHT_ID_HEADER = "flight-id";
+
+    public static String bookingPartitionQueue(int partition) {
+        return BOOKING_PARTITION_QUEUE_PREFIX + partition;
+    }
 
     @Bean
     TopicExchange exchange() {
@@ -54,6 +79,17 @@ public class RabbitConfig {
     }
 
     @Bean
+    Queue bookingBatchCreatedQueue() {
+        return new Queue(BOOKING_BATCH_CREATED_QUEUE, true);
+    }
+
+    @Bean
+    Queue bookingBatchCancelledQueue() {
+        return new Queue(BOOKING_BATCH_CANCELLED_QUEUE, true);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} == 0")
     Binding bookingCreatedBinding() {
         return BindingBuilder
                 .bind(bookingCreatedQueue())
@@ -62,6 +98,7 @@ public class RabbitConfig {
     }
 
     @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} == 0")
     Binding bookingCancelledBinding() {
         return BindingBuilder
                 .bind(bookingCancelledQueue())
@@ -70,6 +107,7 @@ public class RabbitConfig {
     }
 
     @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} == 0")
     Binding bookingUpdatedBinding() {
         return BindingBuilder
                 .bind(bookingUpdatedQueue())
@@ -77,6 +115,67 @@ public class RabbitConfig {
                 .with("booking.updated");
     }
 
+    @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} == 0")
+    Binding bookingBatchCreatedBinding() {
+        return BindingBuilder
+                .bind(bookingBatchCreatedQueue())
+                .to(exchange())
+                .with(BOOKING_BATCH_CREATED_ROUTING_KEY);
+    }
+
+    @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} == 0")
+    Binding bookingBatchCancelledBinding() {
+        return BindingBuilder
+                .bind(bookingBatchCancelledQueue())
+                .to(exchange())
+                .with(BOOKING_BATCH_CANCELLED_ROUTING_KEY);
+    }
+
+    /**
+     * Routes booking.* events through a consistent-hash exchange on the flight-id header, so every
+     * event of a flight lands in the same partition queue and is applied in order by its single
+     * consumer. Requires the rabbitmq_consistent_hash_exchange plugin.
+     */
+    @Bean
+    @ConditionalOnExpression("${messaging.partitions:0} > 0")
+    Declarables bookingPartitions(BookingQueueProperties properties) {
+        CustomExchange partitionedExchange = new CustomExchange(
+                BOOKING_PARTITIONED_EXCHANGE,
+                "x-consistent-hash",
+                true,
+                false,
+                Map.of("hash-header", FLIGHT_ID_HEADER)
+        );
+
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(partitionedExchange);
+
+        for (String routingKey : List.of("booking.created", "booking.cancelled", "booking.updated",
+                BOOKING_BATCH_CREATED_ROUTING_KEY, BOOKING_BATCH_CANCELLED_ROUTING_KEY)) {
+            declarables.add(BindingBuilder
+                    .bind(partitionedExchange)
+                    .to(exchange())
+                    .with(routingKey));
+        }
+
+        for (int partition = 0; partition < properties.getPartitions(); partition++) {
+            Queue queue = QueueBuilder.durable(bookingPartitionQueue(partition))
+                    .singleActiveConsumer()
+                    .build();
+
+            declarables.add(queue);
+            declarables.add(BindingBuilder
+                    .bind(queue)
+                    .to(partitionedExchange)
+                    .with("1")
+                    .noargs());
+        }
+
+        return new Declarables(declarables);
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         JacksonJsonMessageConverter converter = new JacksonJsonMessageConverter();
@@ -93,32 +192,110 @@ public class RabbitConfig {
         idClassMapping.put("booking_created", BookingCreated.class);
         idClassMapping.put("booking_cancelled", BookingCancelled.class);
         idClassMapping.put("booking_updated", BookingUpdated.class);
+        idClassMapping.put("booking_batch_created", BookingBatchCreated.class);
+        idClassMapping.put("booking_batch_cancelled", BookingBatchCancelled.class);
         classMapper.setIdClassMapping(idClassMapping);
 
         return classMapper;
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public MessageConverter binaryMessageConverter() {
+        return new BinaryEventMessageConverter();
+    }
+
+    /**
+     * Listeners pick the converter by content type, so JSON and binary producers can coexist.
+     */
+    @Bean
+    public MessageConverter listenerMessageConverter() {
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(jsonMessageConverter());
+        converter.addDelegate(BinaryEventMessageConverter.CONTENT_TYPE, binaryMessageConverter());
+        return converter;
+    }
+
+    @Bean
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessagingProperties properties) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(properties.getWireFormat() == MessagingProperties.WireFormat.BINARY
+                ? binaryMessageConverter()
+                : jsonMessageConverter());
         template.setExchange(EXCHANGE);
+        // propagates the trace context in the message headers
+        template.setObservationEnabled(true);
         return template;
     }
 
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            MessageConverter jsonMessageConverter
+            MessageConverter listenerMessageConverter,
+            MessagingProperties properties
     ) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(jsonMessageConverter);
+        factory.setMessageConverter(listenerMessageConverter);
         factory.setConcurrentConsumers(1);
         factory.setMaxConcurrentConsumers(1);
 
         factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
 
+        configureListeners(factory, properties, 0);
+
         return factory;
     }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter listenerMessageConverter,
+            MessagingProperties properties,
+            BookingQueueProperties bookingQueues
+    ) {
+        BookingQueueProperties.Batch batch = bookingQueues.getBatch();
+
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(listenerMessageConverter);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batch.getSize());
+        factory.setReceiveTimeout(batch.getReceiveTimeout().toMillis());
+
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+
+        configureListeners(factory, properties, batch.getSize());
+
+        return factory;
+    }
+
+    private static void configureListeners(
+            SimpleRabbitListenerContainerFactory factory,
+            MessagingProperties properties,
+            int minPrefetch
+    ) {
+        if (properties.isVirtualThreads()) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rabbit-listener-");
+            executor.setVirtualThreads(true);
+            factory.setTaskExecutor(executor);
+        }
+
+        // continues the producer's trace in every listener
+        factory.setObservationEnabled(true);
+
+        factory.setContainerCustomizer(container -> {
+            String queue = container.getQueueNames()[0];
+
+            container.setPrefetchCount(Math.max(properties.prefetchFor(queue), minPrefetch));
+
+            // Partition queues keep a single consumer, otherwise per-flight ordering is lost.
+            if (!queue.startsWith(BOOKING_PARTITION_QUEUE_PREFIX)) {
+                container.setMaxConcurrentConsumers(properties.maxConcurrencyFor(queue));
+                container.setConcurrentConsumers(properties.concurrencyFor(queue));
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -1,22 +1,32 @@
 package io.github.bagdad.flightmanagement.controller;
 
 import io.github.bagdad.models.requests.FlightCreateRequest;
+import io.github.bagdad.models.requests.FlightBulkDeleteRequest;
 import io.github.bagdad.models.requests.FlightDeleteRequest;
+import io.github.bagdad.models.requests.FlightPageRequest;
 import io.github.bagdad.models.requests.FlightQueryRequest;
 import io.github.bagdad.models.requests.FlightUpdateRequest;
 import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.flightmanagement.model.FlightPage;
 import io.github.bagdad.flightmanagement.model.FlightStatistics;
+import io.github.bagdad.flightmanagement.model.ImportReport;
+import io.github.bagdad.flightmanagement.service.CatalogueVersion;
 import io.github.bagdad.flightmanagement.service.FlightService;
 import io.swagger.v3.oas.annotations.Parameter;
-import org.springframework.core.io.Resource;
+import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @CrossOrigin(origins = "http://localhost:*")
 @RequestMapping("/api/flight")
@@ -24,9 +34,11 @@ import java.util.List;
 public class FlightController {
 
     private final FlightService service;
+    private final CatalogueVersion catalogueVersion;
 
-    public FlightController(FlightService service) {
+    public FlightController(FlightService service, CatalogueVersion catalogueVersion) {
         this.service = service;
+        this.catalogueVersion = catalogueVersion;
     }
 
     @PostMapping("/create")
@@ -59,9 +71,25 @@ public class FlightController {
         return service.update(flight);
     }
 
-    @PostMapping("/query")
-    public List<Flight> query(FlightQueryRequest query) {
-        return service.query(query);
+    /**
+     * Answers 304 while the catalogue is unchanged since the client's copy.
+     */
+    @GetMapping("/query")
+    public ResponseEntity<List<Flight>> query(FlightQueryRequest query, WebRequest request) {
+        if (isCatalogueNotModified(request)) {
+            return null;
+        }
+
+        return revalidated(service.query(query));
+    }
+
+    /**
+     * Keyset-paginated search. Pass {@code nextCursor} of a page as {@code cursor} to get the next one.
+     * An out-of-range size or an unknown sort or direction is answered with 400.
+     */
+    @GetMapping("/page")
+    public FlightPage page(FlightQueryRequest query, @Valid FlightPageRequest page) {
+        return service.page(query, page);
     }
 
     @PostMapping("/delete")
@@ -69,35 +97,93 @@ public class FlightController {
         service.deleteById(request.id());
     }
 
+    @PostMapping("/delete-bulk")
+    public List<Long> deleteBulk(FlightBulkDeleteRequest request) {
+        return service.deleteAllById(request.ids());
+    }
+
     @GetMapping("/all")
-    public List<Flight> findAll() {
-        return service.findAll();
+    public ResponseEntity<List<Flight>> findAll(WebRequest request) {
+        if (isCatalogueNotModified(request)) {
+            return null;
+        }
+
+        return revalidated(service.findAll());
     }
 
     @GetMapping("/export-csv")
-    public ResponseEntity<Resource> exportAsCSV() throws IOException {
-        Resource resource = service.load();
-
-        return ResponseEntity.ok()
+    public ResponseEntity<StreamingResponseBody> exportAsCSV(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, 64 * 1024);
+                service.exportToCSV(gzipOutputStream);
+                gzipOutputStream.finish();
+            }
+            else {
+                service.exportToCSV(outputStream);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION,
                         "attachment; filename=flights.csv")
-                .contentType(MediaType.parseMediaType("application/csv"))
-                .body(resource);
+                .contentType(MediaType.parseMediaType("application/csv"));
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        return response.body(body);
     }
 
     @PostMapping(value="/import-csv", consumes = "application/csv")
-    public ResponseEntity<String> importAsCSV(
+    public ResponseEntity<ImportReport> importAsCSV(
             @Parameter(description = "Файл для загрузки", required = true)
             @RequestParam("file") MultipartFile file
     ) throws IOException {
-        service.importFromCSV(file.getInputStream());
+        return ResponseEntity.ok(service.importFromCSV(file.getInputStream()));
+    }
+
+    /**
+     * Versioned by the snapshot the statistics come from, so a seat change does not force a new
+     * response before the snapshot is recalculated.
+     */
+    @GetMapping("/statistics")
+    public ResponseEntity<FlightStatistics> calculateStatistics(WebRequest request) {
+        FlightStatistics statistics = service.calculateStatistics();
+        long calculatedAt = statistics.getCalculatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        if (request.checkNotModified("\"" + Long.toString(calculatedAt, 36) + "\"", calculatedAt)) {
+            return null;
+        }
+
+        return revalidated(statistics);
+    }
 
-        return ResponseEntity.ok("CSV Data Saved into Database");
+    private boolean isCatalogueNotModified(WebRequest request) {
+        CatalogueVersion.Version version = catalogueVersion.current();
+
+        // An unsettled version goes out without validators, the body may come from a lagging replica.
+        return catalogueVersion.isSettled(version)
+                && request.checkNotModified(version.eTag(), version.lastModified());
+    }
+
+    /**
+     * Lets browsers and proxies keep the response, but not reuse it without asking.
+     */
+    private static <T> ResponseEntity<T> revalidated(T body) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(body);
     }
 
-    @PostMapping("/statistics")
-    public FlightStatistics calculateStatistics() {
-        return service.calculateStatistics();
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleBadRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
     }
 
 }
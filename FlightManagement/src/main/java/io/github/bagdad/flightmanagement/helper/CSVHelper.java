@@ -8,24 +8,30 @@ import org.apache.commons.csv.CSVRecord;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.ArrayList;
-import java.util.List;
 
 public class CSVHelper {
 
+    // NUMERIC(10, 2), same bounds as @Digits on the request DTOs.
+    private static final int PRICE_INTEGER_DIGITS = 8;
+    private static final int PRICE_FRACTION_DIGITS = 2;
+
     private static final String[] HEADERS = {"number", "from_city", "to_city", "departure", "arrival", "passenger_count", "ticket_price", "created_at", "updated_at"};
 
-    public static ByteArrayInputStream writeToCSC(List<Flight> flights) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        CSVPrinter csvPrinter = new CSVPrinter(new PrintWriter(outputStream), CSVFormat.DEFAULT.builder()
+    public static CSVPrinter openPrinter(OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        return new CSVPrinter(writer, CSVFormat.DEFAULT.builder()
                 .setHeader(HEADERS)
                 .build());
+    }
 
-        for (Flight flight: flights) {
+    public static void print(CSVPrinter csvPrinter, Flight flight) {
+        try {
             csvPrinter.printRecord(
                     flight.getNumber(),
                     flight.getFromCity(),
@@ -38,45 +44,78 @@ public class CSVHelper {
                     flight.getUpdatedAt()
             );
         }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        csvPrinter.flush();
+    public static CSVParser openParser(InputStream file) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(file, StandardCharsets.UTF_8));
 
-        return new ByteArrayInputStream(outputStream.toByteArray());
+        return new CSVParser(reader, CSVFormat.DEFAULT.builder()
+                .setHeader(HEADERS)
+                .setSkipHeaderRecord(true)
+                .setTrim(true)
+                .build());
     }
 
-    public static List<Flight> loadFromCSV(InputStream file) throws IOException {
-        List<Flight> flights = new ArrayList<>();
-
-        try (InputStreamReader reader = new InputStreamReader(file);
-             CSVParser csvParser = new CSVParser(reader, CSVFormat.DEFAULT.builder()
-                     .setHeader(HEADERS)
-                     .setSkipHeaderRecord(true)
-                     .setTrim(true)
-                     .build())
-        ) {
-
-            for (CSVRecord record : csvParser) {
-                Flight flight = new Flight();
-
-                try {
-                    flight.setNumber(record.get("number"));
-                    flight.setFromCity(record.get("from_city"));
-                    flight.setToCity(record.get("to_city"));
-                    flight.setDeparture(OffsetDateTime.parse(record.get("departure"), DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-                    flight.setArrival(OffsetDateTime.parse(record.get("arrival"), DateTimeFormatter.ISO_OFFSET_DATE_TIME));
-                    flight.setPassengerCount(Integer.parseInt(record.get("passenger_count")));
-                    flight.setTicketPrice(new BigDecimal(record.get("ticket_price")));
-                    flight.setCreatedAt(LocalDateTime.parse(record.get("created_at")));
-                    flight.setUpdatedAt(LocalDateTime.parse(record.get("updated_at")));
-
-                    flights.add(flight);
-                }
-                catch (Exception e) {
-                    System.err.println("Непредвиденное исключение: " + e.getMessage());
-                }
-            }
+    /**
+     * Parses and validates one record.
+     *
+     * @throws IllegalArgumentException or {@link DateTimeParseException} describing why the row was rejected
+     */
+    public static Flight parse(CSVRecord record) {
+        Flight flight = new Flight();
+
+        flight.setNumber(requireText(record, "number", 10));
+        flight.setFromCity(requireText(record, "from_city", 255));
+        flight.setToCity(requireText(record, "to_city", 255));
+        flight.setDeparture(OffsetDateTime.parse(record.get("departure"), DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        flight.setArrival(OffsetDateTime.parse(record.get("arrival"), DateTimeFormatter.ISO_OFFSET_DATE_TIME));
+        flight.setPassengerCount(Integer.parseInt(record.get("passenger_count")));
+        flight.setTicketPrice(new BigDecimal(record.get("ticket_price")));
+        flight.setCreatedAt(LocalDateTime.parse(record.get("created_at")));
+        flight.setUpdatedAt(LocalDateTime.parse(record.get("updated_at")));
+
+        if (flight.getArrival().isBefore(flight.getDeparture())) {
+            throw new IllegalArgumentException("arrival is before departure");
+        }
+
+        if (flight.getPassengerCount() < 0 || flight.getPassengerCount() > 500) {
+            throw new IllegalArgumentException("passenger_count must be between 0 and 500");
+        }
+
+        if (flight.getTicketPrice().signum() <= 0) {
+            throw new IllegalArgumentException("ticket_price must be positive");
+        }
+
+        requireDigits(flight.getTicketPrice(), "ticket_price", PRICE_INTEGER_DIGITS, PRICE_FRACTION_DIGITS);
+
+        return flight;
+    }
+
+    private static void requireDigits(BigDecimal value, String column, int integerDigits, int fractionDigits) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        int fraction = Math.max(stripped.scale(), 0);
+        int integer = stripped.precision() - stripped.scale();
+
+        if (integer > integerDigits || fraction > fractionDigits) {
+            throw new IllegalArgumentException(
+                    column + " must have at most " + integerDigits + " integer and " + fractionDigits + " fraction digits");
+        }
+    }
+
+    private static String requireText(CSVRecord record, String column, int maxLength) {
+        String value = record.get(column);
+
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(column + " is required");
+        }
+
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(column + " is longer than " + maxLength + " characters");
         }
 
-        return flights;
+        return value;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,425 @@
+package io.github.bagdad.flightmanagement.index;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.github.bagdad.flightmanagement.service.CatalogueVersion;
+import io.github.bagdad.flightmanagement.service.SeatLedger;
+import io.github.bagdad.models.requests.FlightQueryRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.OffsetDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process index of the flight catalogue by route. Each route keeps its flights sorted by
+ * departure in parallel primitive arrays, so a route + departure window search is a binary
+ * search followed by a scan of the matching slice.
+ * <p>
+ * Catalogue changes replace the arrays of one route (copy-on-write); seat changes are added in
+ * place as deltas, so after-commit callbacks of the same flight may run in any order. A delta
+ * committed while {@link #reload()} reads the table may be counted twice until the next reload.
+ * Seats of {@link SeatLedger} flights are read from the ledger, the table lags behind it.
+ * Searches without both cities are not served and fall back to SQL.
+ * <p>
+ * Only changes made on this instance reach the index directly. Changes made elsewhere are noticed
+ * through the shared {@link CatalogueVersion}, checked every
+ * {@code flight.catalogue-version.cache-ttl}, and rebuild the whole index; until then this instance
+ * may serve a fresh version with stale routes or seats. With several instances taking bookings the
+ * index is rebuilt about once per seat window, so it suits deployments where one instance writes.
+ */
+@Component
+public class FlightRouteIndex {
+
+    private final FlightRepository repository;
+    private final SeatLedger seatLedger;
+    private final CatalogueVersion catalogueVersion;
+    private final boolean enabled;
+
+    private volatile Map<Route, RouteEntries> routes = new ConcurrentHashMap<>();
+    private volatile Map<Long, Route> routeByFlight = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+    // Catalogue version read right before the last reload, or reached by changes of this instance.
+    private volatile long version;
+
+    // Guards catalogue writers. Not synchronized, reload() reads the database while holding it.
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public FlightRouteIndex(
+            FlightRepository repository,
+            SeatLedger seatLedger,
+            CatalogueVersion catalogueVersion,
+            @Value("${flight.route-index.enabled:false}") boolean enabled
+    ) {
+        this.repository = repository;
+        this.seatLedger = seatLedger;
+        this.catalogueVersion = catalogueVersion;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Rebuilds the whole index from the database.
+     */
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+
+        writeLock.lock();
+        try {
+            doReload();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the index when another instance changed the catalogue since it was last in sync.
+     */
+    @Scheduled(fixedDelayString = "${flight.catalogue-version.cache-ttl:100ms}")
+    public void refreshIfChangedElsewhere() {
+        if (!enabled || !loaded) {
+            return;
+        }
+
+        long seen = version;
+        long current = catalogueVersion.current().value();
+
+        if (current <= seen) {
+            return;
+        }
+
+        if (catalogueVersion.drawnElsewhere(seen, current)) {
+            reload();
+        }
+        else {
+            version = current;
+        }
+    }
+
+    private void doReload() {
+        // Read before the data, so a change committed meanwhile is picked up by the next check.
+        long currentVersion = catalogueVersion.current().value();
+        Map<Route, List<Flight>> flightsByRoute = new HashMap<>();
+        Map<Long, Integer> ledgerSeats = seatLedger.committedSeats();
+
+        for (Flight flight : repository.findAll()) {
+            Integer seats = ledgerSeats.get(flight.getId());
+
+            if (seats != null) {
+                flight.setPassengerCount(seats);
+            }
+
+            flightsByRoute.computeIfAbsent(Route.of(flight), route -> new ArrayList<>()).add(flight);
+        }
+
+        Map<Route, RouteEntries> newRoutes = new ConcurrentHashMap<>();
+        Map<Long, Route> newRouteByFlight = new ConcurrentHashMap<>();
+
+        flightsByRoute.forEach((route, flights) -> {
+            newRoutes.put(route, RouteEntries.of(flights));
+            flights.forEach(flight -> newRouteByFlight.put(flight.getId(), route));
+        });
+
+        routes = newRoutes;
+        routeByFlight = newRouteByFlight;
+        version = currentVersion;
+        loaded = true;
+    }
+
+    /**
+     * Answers the query from memory, or returns empty if the index cannot serve it.
+     */
+    public Optional<List<Flight>> query(FlightQueryRequest query) {
+        if (!enabled || !loaded || isBlank(query.fromCity()) || isBlank(query.toCity())) {
+            return Optional.empty();
+        }
+
+        RouteEntries entries = routes.get(new Route(query.fromCity(), query.toCity()));
+
+        if (entries == null) {
+            return Optional.of(List.of());
+        }
+
+        return Optional.of(entries.search(query));
+    }
+
+    public void put(Flight flight) {
+        if (enabled) {
+            afterCommit(() -> doPut(flight));
+        }
+    }
+
+    public void remove(Long flightId) {
+        if (enabled) {
+            afterCommit(() -> doRemove(flightId));
+        }
+    }
+
+    /**
+     * Adds {@code delta} to the flight's remaining seats once the transaction commits.
+     */
+    public void updateSeats(Long flightId, int delta) {
+        if (enabled && delta != 0) {
+            afterCommit(() -> doUpdateSeats(flightId, delta));
+        }
+    }
+
+    private void doPut(Flight flight) {
+        writeLock.lock();
+        try {
+            Route previousRoute = routeByFlight.get(flight.getId());
+            Route route = Route.of(flight);
+            Flight indexed = flight;
+
+            if (previousRoute != null) {
+                RouteEntries previous = routes.get(previousRoute);
+
+                // Catalogue updates never touch seats, keep the count the index already tracks.
+                indexed = copy(flight, previous.seatsOf(flight.getId()));
+                replace(previousRoute, previous.without(flight.getId()));
+            }
+
+            RouteEntries current = routes.getOrDefault(route, RouteEntries.EMPTY);
+            replace(route, current.with(indexed));
+            routeByFlight.put(flight.getId(), route);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doRemove(Long flightId) {
+        writeLock.lock();
+        try {
+            Route route = routeByFlight.remove(flightId);
+
+            if (route != null) {
+                replace(route, routes.get(route).without(flightId));
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void doUpdateSeats(Long flightId, int delta) {
+        // Under the lock, so a delta lands either before or after a put copies the seats, never in
+        // arrays that are being replaced.
+        writeLock.lock();
+        try {
+            Route route = routeByFlight.get(flightId);
+
+            if (route != null) {
+                routes.get(route).addSeats(flightId, delta);
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void replace(Route route, RouteEntries entries) {
+        if (entries.size() == 0) {
+            routes.remove(route);
+        }
+        else {
+            routes.put(route, entries);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static Flight copy(Flight source, int seats) {
+        Flight flight = new Flight();
+        flight.setId(source.getId());
+        flight.setNumber(source.getNumber());
+        flight.setFromCity(source.getFromCity());
+        flight.setToCity(source.getToCity());
+        flight.setDeparture(source.getDeparture());
+        flight.setArrival(source.getArrival());
+        flight.setPassengerCount(seats);
+        flight.setTicketPrice(source.getTicketPrice());
+        flight.setCreatedAt(source.getCreatedAt());
+        flight.setUpdatedAt(source.getUpdatedAt());
+        return flight;
+    }
+
+    private static long toMillis(OffsetDateTime time) {
+        return time.toInstant().toEpochMilli();
+    }
+
+    private static long toCents(BigDecimal price, RoundingMode rounding) {
+        return price.setScale(2, rounding).unscaledValue().longValueExact();
+    }
+
+    record Route(String fromCity, String toCity) {
+
+        static Route of(Flight flight) {
+            return new Route(flight.getFromCity(), flight.getToCity());
+        }
+
+    }
+
+    /**
+     * Immutable snapshot of one route, except for {@link #seats} which is updated in place.
+     */
+    private static final class RouteEntries {
+
+        static final RouteEntries EMPTY = of(List.of());
+
+        private final Flight[] flights;
+        private final long[] departures;
+        private final long[] arrivals;
+        private final long[] prices;
+        private final AtomicIntegerArray seats;
+        private final Map<Long, Integer> positions;
+
+        private RouteEntries(List<Flight> sorted) {
+            int size = sorted.size();
+
+            flights = sorted.toArray(new Flight[0]);
+            departures = new long[size];
+            arrivals = new long[size];
+            prices = new long[size];
+            seats = new AtomicIntegerArray(size);
+            positions = new HashMap<>(size * 2);
+
+            for (int i = 0; i < size; i++) {
+                Flight flight = flights[i];
+                departures[i] = toMillis(flight.getDeparture());
+                arrivals[i] = toMillis(flight.getArrival());
+                prices[i] = toCents(flight.getTicketPrice(), RoundingMode.UNNECESSARY);
+                seats.set(i, flight.getPassengerCount());
+                positions.put(flight.getId(), i);
+            }
+        }
+
+        static RouteEntries of(List<Flight> flights) {
+            List<Flight> sorted = new ArrayList<>(flights);
+            sorted.sort(Comparator.comparing(Flight::getDeparture).thenComparing(Flight::getId));
+            return new RouteEntries(sorted);
+        }
+
+        int size() {
+            return flights.length;
+        }
+
+        int seatsOf(Long flightId) {
+            return seats.get(positions.get(flightId));
+        }
+
+        void addSeats(Long flightId, int delta) {
+            Integer position = positions.get(flightId);
+
+            if (position != null) {
+                seats.addAndGet(position, delta);
+            }
+        }
+
+        RouteEntries with(Flight flight) {
+            List<Flight> flights = snapshot();
+            flights.add(flight);
+            return of(flights);
+        }
+
+        RouteEntries without(Long flightId) {
+            List<Flight> flights = snapshot();
+            flights.removeIf(flight -> flight.getId().equals(flightId));
+            return of(flights);
+        }
+
+        List<Flight> search(FlightQueryRequest query) {
+            long departureMin = query.departureMin() == null ? Long.MIN_VALUE : toMillis(query.departureMin());
+            long departureMax = query.departureMax() == null ? Long.MAX_VALUE : toMillis(query.departureMax());
+            long arrivalMin = query.arrivalMin() == null ? Long.MIN_VALUE : toMillis(query.arrivalMin());
+            long arrivalMax = query.arrivalMax() == null ? Long.MAX_VALUE : toMillis(query.arrivalMax());
+            long priceMin = query.ticketPriceMin() == null ? Long.MIN_VALUE : toCents(query.ticketPriceMin(), RoundingMode.CEILING);
+            long priceMax = query.ticketPriceMax() == null ? Long.MAX_VALUE : toCents(query.ticketPriceMax(), RoundingMode.FLOOR);
+            int seatsMin = query.passengerCountMin() == null ? Integer.MIN_VALUE : query.passengerCountMin();
+            int seatsMax = query.passengerCountMax() == null ? Integer.MAX_VALUE : query.passengerCountMax();
+            String number = isBlank(query.number()) ? null : query.number();
+
+            List<Flight> result = new ArrayList<>();
+
+            for (int i = lowerBound(departureMin); i < departures.length && departures[i] <= departureMax; i++) {
+                int remainingSeats = seats.get(i);
+
+                if (arrivals[i] < arrivalMin || arrivals[i] > arrivalMax
+                        || prices[i] < priceMin || prices[i] > priceMax
+                        || remainingSeats < seatsMin || remainingSeats > seatsMax
+                        || (number != null && !number.equals(flights[i].getNumber()))) {
+                    continue;
+                }
+
+                result.add(copy(flights[i], remainingSeats));
+            }
+
+            return result;
+        }
+
+        private int lowerBound(long departure) {
+            int low = 0;
+            int high = departures.length;
+
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+
+                if (departures[mid] < departure) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+
+            return low;
+        }
+
+        private List<Flight> snapshot() {
+            List<Flight> snapshot = new ArrayList<>(flights.length + 1);
+
+            for (int i = 0; i < flights.length; i++) {
+                snapshot.add(copy(flights[i], seats.get(i)));
+            }
+
+            return snapshot;
+        }
+
+    }
+
+}
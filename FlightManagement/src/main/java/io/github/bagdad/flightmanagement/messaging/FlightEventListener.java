@@ -4,58 +4,134 @@ import com.rabbitmq.client.Channel;
 import io.github.bagdad.flightmanagement.config.RabbitConfig;
 import io.github.bagdad.flightmanagement.service.FlightService;
 import io.github.bagdad.models.events.*;
+import io.github.bagdad.models.messaging.Deliveries;
+import io.github.bagdad.models.messaging.IdempotentExecutor;
+import io.github.bagdad.models.messaging.ListenerMetrics;
 import lombok.AllArgsConstructor;
-import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.stereotype.Component;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@Slf4j
 @Component
 @AllArgsConstructor
 public class FlightEventListener {
 
     private final FlightService service;
+    private final IdempotentExecutor executor;
+    private final ListenerMetrics metrics;
 
-    @RabbitListener(queues = RabbitConfig.BOOKING_CREATED_QUEUE)
+    @RabbitListener(
+            queues = RabbitConfig.BOOKING_CREATED_QUEUE,
+            autoStartup = "#{!${messaging.batch.enabled:false}}"
+    )
     public void handleBookingCreated(BookingCreated event, Message message, Channel channel) throws Exception {
         try {
-            service.reserve(event);
+            executor.execute(RabbitConfig.BOOKING_CREATED_QUEUE, event, () -> service.reserve(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight-booking message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking created message", e);
+            metrics.nacked(RabbitConfig.BOOKING_CREATED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
+        }
+    }
+
+    @RabbitListener(
+            queues = RabbitConfig.BOOKING_CREATED_QUEUE,
+            containerFactory = "batchRabbitListenerContainerFactory",
+            autoStartup = "${messaging.batch.enabled:false}"
+    )
+    public void handleBookingCreatedBatch(List<org.springframework.messaging.Message<BookingCreated>> messages, Channel channel) throws Exception {
+        long lastDeliveryTag = messages.stream()
+                .mapToLong(m -> m.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class))
+                .max()
+                .orElseThrow();
+
+        try {
+            List<BookingCreated> events = messages.stream()
+                    .map(org.springframework.messaging.Message::getPayload)
+                    .toList();
+
+            // One transaction for the whole batch, as it is acknowledged or rejected as a whole.
+            executor.executeAll(RabbitConfig.BOOKING_CREATED_QUEUE, events, fresh -> {
+                Map<Long, List<BookingCreated>> eventsByFlight = fresh.stream()
+                        .collect(Collectors.groupingBy(BookingCreated::getFlightId, LinkedHashMap::new, Collectors.toList()));
+
+                eventsByFlight.forEach(service::reserveAll);
+            });
+
+            channel.basicAck(lastDeliveryTag, true);
+        }
+        catch (Exception e) {
+            log.error("Error processing booking created batch", e);
+            metrics.nacked(RabbitConfig.BOOKING_CREATED_QUEUE, e);
+            throw Deliveries.nack(channel, lastDeliveryTag, true, e);
         }
     }
 
     @RabbitListener(queues = RabbitConfig.BOOKING_UPDATED_QUEUE)
     public void handleBookingUpdated(BookingUpdated event, Message message, Channel channel) throws Exception {
         try {
-            service.updateBookingOnFlight(event);
+            executor.execute(RabbitConfig.BOOKING_UPDATED_QUEUE, event, () -> service.updateBookingOnFlight(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight-booking message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking updated message", e);
+            metrics.nacked(RabbitConfig.BOOKING_UPDATED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
     @RabbitListener(queues = RabbitConfig.BOOKING_CANCELLED_QUEUE)
     public void handleBookingCancelled(BookingCancelled event, Message message, Channel channel) throws Exception {
         try {
-            service.cancelReservation(event);
+            executor.execute(RabbitConfig.BOOKING_CANCELLED_QUEUE, event, () -> service.cancelReservation(event));
+
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+        }
+        catch (Exception e) {
+            log.error("Error processing booking cancelled message", e);
+            metrics.nacked(RabbitConfig.BOOKING_CANCELLED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
+        }
+    }
+
+    @RabbitListener(queues = RabbitConfig.BOOKING_BATCH_CREATED_QUEUE)
+    public void handleBookingBatchCreated(BookingBatchCreated event, Message message, Channel channel) throws Exception {
+        try {
+            executor.execute(RabbitConfig.BOOKING_BATCH_CREATED_QUEUE, event, () -> service.reserveBatch(event));
+
+            channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+        }
+        catch (Exception e) {
+            log.error("Error processing booking batch created message", e);
+            metrics.nacked(RabbitConfig.BOOKING_BATCH_CREATED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
+        }
+    }
+
+    @RabbitListener(queues = RabbitConfig.BOOKING_BATCH_CANCELLED_QUEUE)
+    public void handleBookingBatchCancelled(BookingBatchCancelled event, Message message, Channel channel) throws Exception {
+        try {
+            executor.execute(RabbitConfig.BOOKING_BATCH_CANCELLED_QUEUE, event, () -> service.cancelBatch(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight-booking message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking batch cancelled message", e);
+            metrics.nacked(RabbitConfig.BOOKING_BATCH_CANCELLED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
-}
\ No newline at end of file
+}
@@ -3,23 +3,26 @@ package io.github.bagdad.flightmanagement.messaging;
 import io.github.bagdad.flightmanagement.config.RabbitConfig;
 import io.github.bagdad.flightmanagement.model.Flight;
 import io.github.bagdad.models.events.*;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import io.github.bagdad.models.messaging.EventSender;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+@Timed("messaging.publisher")
 @Component
 public class FlightEventPublisher {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final EventSender sender;
 
-    public FlightEventPublisher(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public FlightEventPublisher(EventSender sender) {
+        this.sender = sender;
     }
 
     public void publishBookingConfirmed(BookingCreated event) {
         BookingConfirmed bookingCreatedEvent = FlightEventFactory.bookingConfirmed(event.getBookingId(), event.getFlightId());
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "flight.booking-confirmed",
                 bookingCreatedEvent
         );
@@ -28,21 +31,37 @@ public class FlightEventPublisher {
     public void publishBookingRejected(BookingCreated event) {
         BookingRejected bookingRejectedEvent = FlightEventFactory.bookingRejected(event.getBookingId());
 
-        rabbitTemplate.convertAndSend(
-            RabbitConfig.EXCHANGE,
-            "flight.booking-rejected",
+        sender.send(
+                "flight.booking-rejected",
                 bookingRejectedEvent
         );
     }
 
+    public void publishBookingsConfirmed(List<BookingCreated> events) {
+        sender.sendAll(
+                "flight.booking-confirmed",
+                events.stream()
+                        .map(event -> FlightEventFactory.bookingConfirmed(event.getBookingId(), event.getFlightId()))
+                        .toList()
+        );
+    }
+
+    public void publishBookingsRejected(List<BookingCreated> events) {
+        sender.sendAll(
+                "flight.booking-rejected",
+                events.stream()
+                        .map(event -> FlightEventFactory.bookingRejected(event.getBookingId()))
+                        .toList()
+        );
+    }
+
     public void publishBookingUpdateConfirmed(BookingUpdated event) {
         BookingUpdateConfirmed bookingUpdatedConfirmedEvent = FlightEventFactory.bookingUpdateConfirmed(
                 event.getBookingId(),
                 event.getFlightId()
         );
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "flight.booking-update-confirmed",
                 bookingUpdatedConfirmedEvent
 
@@ -57,18 +76,23 @@ public class FlightEventPublisher {
                 event.getNewPassengerCount()
         );
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "flight.booking-update-rejected",
                 bookingUpdateRejectedEvent
         );
     }
 
+    public void publishFlightsCancelled(List<Long> flightIds) {
+        sender.send(
+                RabbitConfig.FLIGHTS_CANCELLED_ROUTING_KEY,
+                new FlightsCancelled(flightIds)
+        );
+    }
+
     public void publishFlightCancelled(Flight flight) {
         FlightCancelled flightCancelledEvent = FlightEventFactory.flightCancelled(flight.getId());
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "flight.cancelled",
                 flightCancelledEvent
         );
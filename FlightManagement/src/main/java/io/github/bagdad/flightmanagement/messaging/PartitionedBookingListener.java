@@ -0,0 +1,116 @@
+package io.github.bagdad.flightmanagement.messaging;
+
+import com.rabbitmq.client.Channel;
+import io.github.bagdad.flightmanagement.config.BookingQueueProperties;
+import io.github.bagdad.flightmanagement.config.RabbitConfig;
+import io.github.bagdad.flightmanagement.service.FlightService;
+import io.github.bagdad.models.events.AbstractEvent;
+import io.github.bagdad.models.events.BookingBatchCancelled;
+import io.github.bagdad.models.events.BookingBatchCreated;
+import io.github.bagdad.models.events.BookingCancelled;
+import io.github.bagdad.models.events.BookingCreated;
+import io.github.bagdad.models.events.BookingUpdated;
+import io.github.bagdad.models.messaging.Deliveries;
+import io.github.bagdad.models.messaging.IdempotentExecutor;
+import io.github.bagdad.models.messaging.ListenerMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.SimpleRabbitListenerEndpoint;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the flight-keyed partition queues, one consumer per queue. Each partition carries
+ * created, updated and cancelled events of its flights, single and batched, so they are applied in
+ * publish order.
+ */
+@Slf4j
+@Component
+@ConditionalOnExpression("${messaging.partitions:0} > 0")
+public class PartitionedBookingListener implements RabbitListenerConfigurer {
+
+    private final FlightService service;
+    private final IdempotentExecutor executor;
+    private final MessageConverter messageConverter;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+    private final BookingQueueProperties properties;
+    private final ListenerMetrics metrics;
+
+    public PartitionedBookingListener(
+            FlightService service,
+            IdempotentExecutor executor,
+            MessageConverter listenerMessageConverter,
+            SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory,
+            BookingQueueProperties properties,
+            ListenerMetrics metrics
+    ) {
+        this.service = service;
+        this.executor = executor;
+        this.messageConverter = listenerMessageConverter;
+        this.containerFactory = rabbitListenerContainerFactory;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int partition = 0; partition < properties.getPartitions(); partition++) {
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("booking-partition-" + partition);
+            endpoint.setQueueNames(RabbitConfig.bookingPartitionQueue(partition));
+            endpoint.setConcurrency("1");
+            endpoint.setMessageListener((ChannelAwareMessageListener) this::handle);
+
+            registrar.registerEndpoint(endpoint, containerFactory);
+        }
+    }
+
+    private void handle(Message message, Channel channel) throws Exception {
+        long deliveryTag = message.getMessageProperties().getDeliveryTag();
+        String queue = message.getMessageProperties().getConsumerQueue();
+
+        try {
+            Object event = messageConverter.fromMessage(message);
+
+            if (!(event instanceof AbstractEvent typed)) {
+                throw new IllegalArgumentException("Unexpected event on booking partition: " + event.getClass().getName());
+            }
+
+            executor.execute(queue, typed, () -> apply(typed));
+
+            channel.basicAck(deliveryTag, false);
+        }
+        catch (Exception e) {
+            log.error("Error processing partitioned booking message", e);
+            metrics.nacked(queue, e);
+            throw Deliveries.nack(channel, deliveryTag, false, e);
+        }
+    }
+
+    private void apply(AbstractEvent event) {
+        if (event instanceof BookingCreated created) {
+            service.reserve(created);
+        }
+        else if (event instanceof BookingUpdated updated) {
+            service.updateBookingOnFlight(updated);
+        }
+        else if (event instanceof BookingCancelled cancelled) {
+            service.cancelReservation(cancelled);
+        }
+        else if (event instanceof BookingBatchCreated batchCreated) {
+            service.reserveBatch(batchCreated);
+        }
+        else if (event instanceof BookingBatchCancelled batchCancelled) {
+            service.cancelBatch(batchCancelled);
+        }
+        else {
+            throw new IllegalArgumentException("Unexpected event on booking partition: " + event.getClass().getName());
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package io.github.bagdad.flightmanagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class FlightPage {
+
+    private List<FlightProjection> items;
+
+    /**
+     * Cursor of the next page, or null when this is the last one.
+     */
+    private String nextCursor;
+
+}
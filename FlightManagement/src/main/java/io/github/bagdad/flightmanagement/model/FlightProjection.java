@@ -0,0 +1,55 @@
+package io.github.bagdad.flightmanagement.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+/**
+ * A {@link Flight} of a page, carrying only the requested fields; the others are left out of the
+ * response instead of being sent as null.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@AllArgsConstructor
+@Getter
+public class FlightProjection {
+
+    private Long id;
+
+    private String number;
+
+    private String fromCity;
+
+    private String toCity;
+
+    private OffsetDateTime departure;
+
+    private OffsetDateTime arrival;
+
+    private Integer passengerCount;
+
+    private BigDecimal ticketPrice;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    public static FlightProjection of(Flight flight) {
+        return new FlightProjection(
+                flight.getId(),
+                flight.getNumber(),
+                flight.getFromCity(),
+                flight.getToCity(),
+                flight.getDeparture(),
+                flight.getArrival(),
+                flight.getPassengerCount(),
+                flight.getTicketPrice(),
+                flight.getCreatedAt(),
+                flight.getUpdatedAt()
+        );
+    }
+
+}
@@ -5,7 +5,8 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,4 +20,10 @@ public class FlightStatistics {
 
     private Integer totalFlights;
 
+    private Double loadFactor;
+
+    private List<RouteStatistics> routes;
+
+    private LocalDateTime calculatedAt;
+
 }
@@ -0,0 +1,78 @@
+package io.github.bagdad.flightmanagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+public class ImportReport {
+
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+
+    private long totalRows;
+
+    private long importedRows;
+
+    private long rejectedRows;
+
+    private final List<RejectedRow> rejected = new ArrayList<>();
+
+    /**
+     * Chunk the database refused, after which the import stopped; null if it ran to the end.
+     */
+    private FailedChunk failure;
+
+    private long elapsedMillis;
+
+    private double rowsPerSecond;
+
+    public void rowRead() {
+        totalRows++;
+    }
+
+    public void imported(long rows) {
+        importedRows += rows;
+    }
+
+    public void reject(long line, String reason) {
+        rejectedRows++;
+
+        if (rejected.size() < MAX_REPORTED_REJECTIONS) {
+            rejected.add(new RejectedRow(line, reason));
+        }
+    }
+
+    public void fail(long firstLine, long lastLine, String reason) {
+        failure = new FailedChunk(firstLine, lastLine, reason);
+    }
+
+    public void finish(long elapsedNanos) {
+        elapsedMillis = elapsedNanos / 1_000_000;
+        rowsPerSecond = elapsedNanos > 0 ? totalRows * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class RejectedRow {
+
+        private long line;
+
+        private String reason;
+
+    }
+
+    @AllArgsConstructor
+    @Getter
+    public static class FailedChunk {
+
+        private long firstLine;
+
+        private long lastLine;
+
+        private String reason;
+
+    }
+
+}
@@ -0,0 +1,28 @@
+package io.github.bagdad.flightmanagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RouteStatistics {
+
+    private String fromCity;
+
+    private String toCity;
+
+    private long flights;
+
+    private long capacity;
+
+    private long remainingSeats;
+
+    public double getLoadFactor() {
+        return capacity == 0 ? 0 : 1 - (double) remainingSeats / capacity;
+    }
+
+}
@@ -0,0 +1,28 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+@Timed("flight.repository")
+@Repository
+public class CatalogueVersionRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CatalogueVersionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Draws a new version. Not rolled back with the caller's transaction.
+     */
+    public long next() {
+        return jdbcTemplate.queryForObject("SELECT nextval('catalogue_version')", Long.class);
+    }
+
+    public long current() {
+        return jdbcTemplate.queryForObject("SELECT last_value FROM catalogue_version", Long.class);
+    }
+
+}
@@ -0,0 +1,83 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Columns of the flights table that can be selected in a projection, keyed by their JSON field name.
+ */
+public enum FlightColumn {
+
+    ID("id", "id", (flight, rs) -> flight.setId(rs.getLong("id"))),
+    NUMBER("number", "number", (flight, rs) -> flight.setNumber(rs.getString("number"))),
+    FROM_CITY("fromCity", "from_city", (flight, rs) -> flight.setFromCity(rs.getString("from_city"))),
+    TO_CITY("toCity", "to_city", (flight, rs) -> flight.setToCity(rs.getString("to_city"))),
+    DEPARTURE("departure", "departure", (flight, rs) -> flight.setDeparture(rs.getObject("departure", OffsetDateTime.class))),
+    ARRIVAL("arrival", "arrival", (flight, rs) -> flight.setArrival(rs.getObject("arrival", OffsetDateTime.class))),
+    PASSENGER_COUNT("passengerCount", "passenger_count", (flight, rs) -> flight.setPassengerCount(rs.getInt("passenger_count"))),
+    TICKET_PRICE("ticketPrice", "ticket_price", (flight, rs) -> flight.setTicketPrice(rs.getBigDecimal("ticket_price"))),
+    CREATED_AT("createdAt", "created_at", (flight, rs) -> flight.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime())),
+    UPDATED_AT("updatedAt", "updated_at", (flight, rs) -> flight.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime()));
+
+    private final String field;
+    private final String column;
+    private final Reader reader;
+
+    FlightColumn(String field, String column, Reader reader) {
+        this.field = field;
+        this.column = column;
+        this.reader = reader;
+    }
+
+    public String field() {
+        return field;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    void read(Flight flight, ResultSet rs) throws SQLException {
+        reader.read(flight, rs);
+    }
+
+    public static FlightColumn fromField(String field) {
+        for (FlightColumn column : values()) {
+            if (column.field.equals(field)) {
+                return column;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown flight field: " + field);
+    }
+
+    /**
+     * Resolves requested fields to columns. The id and the sort column are always selected
+     * because the page cursor is built from them.
+     */
+    public static Set<FlightColumn> projection(Collection<String> fields, FlightSort sort) {
+        if (fields == null || fields.isEmpty()) {
+            return EnumSet.allOf(FlightColumn.class);
+        }
+
+        Set<FlightColumn> columns = EnumSet.of(ID, sort.column());
+
+        for (String field : fields) {
+            columns.add(fromField(field.trim()));
+        }
+
+        return columns;
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        void read(Flight flight, ResultSet rs) throws SQLException;
+    }
+
+}
@@ -0,0 +1,133 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.github.bagdad.models.requests.FlightQueryRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the parameterized SQL behind {@link FlightRepository#query} and {@link FlightRepository#queryPage}.
+ * Column names only ever come from {@link FlightColumn}, user input is always bound as a parameter.
+ */
+public final class FlightQueryBuilder {
+
+    private FlightQueryBuilder() {
+    }
+
+    public static SqlQuery select(FlightQueryRequest query) {
+        StringBuilder sql = new StringBuilder("SELECT * FROM flights WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+
+        appendFilters(sql, params, query);
+
+        return new SqlQuery(sql.toString(), params.toArray());
+    }
+
+    public static SqlQuery page(
+            FlightQueryRequest query,
+            FlightSort sort,
+            boolean descending,
+            FlightSort.Cursor after,
+            Collection<FlightColumn> columns,
+            int limit
+    ) {
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append(columns.stream().map(FlightColumn::column).collect(Collectors.joining(", ")))
+                .append(" FROM flights WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+
+        appendFilters(sql, params, query);
+
+        String keyColumn = sort.column().column();
+
+        if (after != null) {
+            sql.append(" AND (").append(keyColumn).append(", id) ")
+                    .append(descending ? "<" : ">")
+                    .append(" (?, ?)");
+            params.add(after.key());
+            params.add(after.id());
+        }
+
+        String direction = descending ? " DESC" : " ASC";
+
+        sql.append(" ORDER BY ").append(keyColumn).append(direction)
+                .append(", id").append(direction)
+                .append(" LIMIT ?");
+        params.add(limit);
+
+        return new SqlQuery(sql.toString(), params.toArray());
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> params, FlightQueryRequest query) {
+        if (query == null) {
+            return;
+        }
+
+        if (query.number() != null && !query.number().isBlank()) {
+            sql.append(" AND number = ?");
+            params.add(query.number());
+        }
+
+        if (query.fromCity() != null && !query.fromCity().isBlank()) {
+            sql.append(" AND from_city = ?");
+            params.add(query.fromCity());
+        }
+
+        if (query.toCity() != null && !query.toCity().isBlank()) {
+            sql.append(" AND to_city = ?");
+            params.add(query.toCity());
+        }
+
+        if (query.departureMin() != null) {
+            sql.append(" AND departure >= ?");
+            params.add(query.departureMin());
+        }
+
+        if (query.departureMax() != null) {
+            sql.append(" AND departure <= ?");
+            params.add(query.departureMax());
+        }
+
+        if (query.arrivalMin() != null) {
+            sql.append(" AND arrival >= ?");
+            params.add(query.arrivalMin());
+        }
+
+        if (query.arrivalMax() != null) {
+            sql.append(" AND arrival <= ?");
+            params.add(query.arrivalMax());
+        }
+
+        if (query.passengerCountMin() != null) {
+            sql.append(" AND passenger_count >= ?");
+            params.add(query.passengerCountMin());
+
+            // The planner cannot prove a bound parameter implies the partial index predicate,
+            // so state it literally to make idx_flight_available_departure usable.
+            if (query.passengerCountMin() > 0) {
+                sql.append(" AND passenger_count > 0");
+            }
+        }
+
+        if (query.passengerCountMax() != null) {
+            sql.append(" AND passenger_count <= ?");
+            params.add(query.passengerCountMax());
+        }
+
+        if (query.ticketPriceMin() != null) {
+            sql.append(" AND ticket_price >= ?");
+            params.add(query.ticketPriceMin());
+        }
+
+        if (query.ticketPriceMax() != null) {
+            sql.append(" AND ticket_price <= ?");
+            params.add(query.ticketPriceMax());
+        }
+    }
+
+    public record SqlQuery(String sql, Object[] params) {
+    }
+
+}
@@ -2,25 +2,40 @@ package io.github.bagdad.flightmanagement.repository;
 
 import io.github.bagdad.models.requests.FlightQueryRequest;
 import io.github.bagdad.flightmanagement.model.Flight;
-import io.github.bagdad.flightmanagement.model.FlightStatistics;
+import io.github.bagdad.flightmanagement.model.RouteStatistics;
+import io.micrometer.core.annotation.Timed;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
+@Timed("flight.repository")
 @Repository
 public class FlightRepository {
 
     private final JdbcTemplate jdbcTemplate;
     private static final FlightMapper mapper = new FlightMapper();
+    private static final int STREAM_FETCH_SIZE = 1000;
 
     public FlightRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
@@ -89,6 +104,66 @@ public class FlightRepository {
         });
     }
 
+    /**
+     * Bulk loads flights with {@code COPY FROM STDIN} when the connection is a PostgreSQL one,
+     * falling back to a JDBC batch otherwise. Each call is one statement, so a chunk is
+     * written atomically.
+     *
+     * @return number of rows written
+     */
+    public long copyAll(List<Flight> flights) {
+        String sql = """
+        COPY flights (
+            number, from_city, to_city, departure, arrival,
+            passenger_count, ticket_price, created_at, updated_at
+        ) FROM STDIN WITH (FORMAT csv)
+        """;
+
+        Long copied = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return null;
+            }
+
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            try {
+                return copyManager.copyIn(sql, new StringReader(toCopyRows(flights)));
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        if (copied == null) {
+            saveAll(flights);
+            return flights.size();
+        }
+
+        return copied;
+    }
+
+    private static String toCopyRows(List<Flight> flights) throws IOException {
+        StringBuilder rows = new StringBuilder(flights.size() * 128);
+
+        try (CSVPrinter printer = new CSVPrinter(rows, CSVFormat.POSTGRESQL_CSV)) {
+            for (Flight flight : flights) {
+                printer.printRecord(
+                        flight.getNumber(),
+                        flight.getFromCity(),
+                        flight.getToCity(),
+                        flight.getDeparture(),
+                        flight.getArrival(),
+                        flight.getPassengerCount(),
+                        flight.getTicketPrice(),
+                        flight.getCreatedAt(),
+                        flight.getUpdatedAt()
+                );
+            }
+        }
+
+        return rows.toString();
+    }
+
     public Flight update(Flight flight) {
         String sql = """
             UPDATE flights SET
@@ -118,69 +193,39 @@ public class FlightRepository {
     }
 
     public List<Flight> query(FlightQueryRequest query) {
-        StringBuilder sql = new StringBuilder("SELECT * FROM flights WHERE 1=1");
+        FlightQueryBuilder.SqlQuery sql = FlightQueryBuilder.select(query);
 
-        List<Object> params = new ArrayList<>();
-
-        if (query.number() != null && !query.number().isBlank()) {
-            sql.append(" AND number = ?");
-            params.add(query.number());
-        }
-
-        if (query.fromCity() != null && !query.fromCity().isBlank()) {
-            sql.append(" AND from_city = ?");
-            params.add(query.fromCity());
-        }
-
-        if (query.toCity() != null && !query.toCity().isBlank()) {
-            sql.append(" AND to_city = ?");
-            params.add(query.toCity());
-        }
-
-        if (query.departureMin() != null) {
-            sql.append(" AND departure >= ?");
-            params.add(query.departureMin());
-        }
-
-        if (query.departureMax() != null) {
-            sql.append(" AND departure <= ?");
-            params.add(query.departureMax());
-        }
-
-        if (query.arrivalMin() != null) {
-            sql.append(" AND arrival >= ?");
-            params.add(query.arrivalMin());
-        }
-
-        if (query.arrivalMax() != null) {
-            sql.append(" AND arrival <= ?");
-            params.add(query.arrivalMax());
-        }
-
-        if (query.passengerCountMin() != null) {
-            sql.append(" AND passenger_count >= ?");
-            params.add(query.passengerCountMin());
-        }
-
-        if (query.passengerCountMax() != null) {
-            sql.append(" AND passenger_count <= ?");
-            params.add(query.passengerCountMax());
-        }
-
-        if (query.ticketPriceMin() != null) {
-            sql.append(" AND ticket_price >= ?");
-            params.add(query.ticketPriceMin());
-        }
+        return jdbcTemplate.query(
+                sql.sql(),
+                mapper,
+                sql.params()
+        );
+    }
 
-        if (query.ticketPriceMax() != null) {
-            sql.append(" AND ticket_price <= ?");
-            params.add(query.ticketPriceMax());
-        }
+    /**
+     * Returns at most {@code limit} flights after {@code after} in (sort key, id) order,
+     * reading only the given columns.
+     */
+    public List<Flight> queryPage(
+            FlightQueryRequest query,
+            FlightSort sort,
+            boolean descending,
+            FlightSort.Cursor after,
+            Set<FlightColumn> columns,
+            int limit
+    ) {
+        FlightQueryBuilder.SqlQuery sql = FlightQueryBuilder.page(query, sort, descending, after, columns, limit);
 
         return jdbcTemplate.query(
-                sql.toString(),
-                mapper,
-                params.toArray()
+                sql.sql(),
+                (rs, rowNum) -> {
+                    Flight flight = new Flight();
+                    for (FlightColumn column : columns) {
+                        column.read(flight, rs);
+                    }
+                    return flight;
+                },
+                sql.params()
         );
     }
 
@@ -205,75 +250,131 @@ public class FlightRepository {
         );
     }
 
+    /**
+     * Streams every flight through a forward-only cursor. Must run inside a transaction,
+     * otherwise the PostgreSQL driver ignores the fetch size and buffers the whole result.
+     */
+    public void forEach(Consumer<Flight> action) {
+        String sql = "SELECT * FROM flights";
+
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(
+                            sql,
+                            ResultSet.TYPE_FORWARD_ONLY,
+                            ResultSet.CONCUR_READ_ONLY
+                    );
+                    statement.setFetchSize(STREAM_FETCH_SIZE);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> action.accept(mapper.mapRow(rs, rs.getRow()))
+        );
+    }
+
     public int deleteById(Long id) {
         String sql = "DELETE FROM flights WHERE id = ?";
 
         return jdbcTemplate.update(sql, id);
     }
 
+    /**
+     * @return ids of the flights that existed and were deleted
+     */
+    public List<Long> deleteAllById(List<Long> ids) {
+        String sql = "DELETE FROM flights WHERE id = ANY(?) RETURNING id";
+
+        return jdbcTemplate.queryForList(sql, Long.class, (Object) ids.toArray(new Long[0]));
+    }
+
+    public boolean existsById(Long id) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM flights WHERE id = ?)";
+
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, id));
+    }
 
-    public void updatePassengerCount(Flight flight) {
+    /**
+     * Atomically takes {@code seats} from the flight if enough of them are left.
+     *
+     * @return remaining seats after the reservation, or empty if the flight does not exist
+     *         or has fewer than {@code seats} seats left
+     */
+    public Optional<Integer> reserveSeats(Long flightId, int seats, LocalDateTime updatedAt) {
         String sql = """
             UPDATE flights SET
-                passenger_count = ?,
+                passenger_count = passenger_count - ?,
                 updated_at = ?
-            WHERE id = ?
+            WHERE id = ? AND passenger_count >= ?
+            RETURNING passenger_count
         """;
 
-        jdbcTemplate.update(sql,
-                flight.getPassengerCount(),
-                flight.getUpdatedAt(),
-                flight.getId());
-
+        return jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> rs.getInt("passenger_count"),
+                seats,
+                updatedAt,
+                flightId,
+                seats
+        ).stream().findFirst();
     }
 
-    private String calculateTheMostDepartureCity() {
-        String sql = """
-            SELECT from_city, COUNT(*) AS departure_count
-            FROM flights
-            GROUP BY from_city
-            ORDER BY departure_count DESC
-            LIMIT 1
-        """;
+    /**
+     * Locks the flight row until the end of the current transaction.
+     *
+     * @return seats left on the flight, or empty if the flight does not exist
+     */
+    public Optional<Integer> lockRemainingSeats(Long flightId) {
+        String sql = "SELECT passenger_count FROM flights WHERE id = ? FOR UPDATE";
 
-        return jdbcTemplate.queryForObject(
+        return jdbcTemplate.query(
                 sql,
-                (rs, rowNum) -> rs.getString("from_city")
-        );
+                (rs, rowNum) -> rs.getInt("passenger_count"),
+                flightId
+        ).stream().findFirst();
     }
 
-    private Integer calculateTotalFlights() {
+    /**
+     * Atomically gives {@code seats} back to the flight.
+     *
+     * @return remaining seats after the release, or empty if the flight does not exist
+     */
+    public Optional<Integer> releaseSeats(Long flightId, int seats, LocalDateTime updatedAt) {
         String sql = """
-            SELECT COUNT(*) AS total_flights
-            FROM flights
+            UPDATE flights SET
+                passenger_count = passenger_count + ?,
+                updated_at = ?
+            WHERE id = ?
+            RETURNING passenger_count
         """;
 
-        return jdbcTemplate.queryForObject(
+        return jdbcTemplate.query(
                 sql,
-                (rs, rowNum) -> rs.getInt("total_flights")
-        );
+                (rs, rowNum) -> rs.getInt("passenger_count"),
+                seats,
+                updatedAt,
+                flightId
+        ).stream().findFirst();
     }
 
-    private String calculateTheMostVisitingCity() {
+    /**
+     * Aggregates the whole table per route in a single scan; city and total figures are derived
+     * from these rows by the caller.
+     */
+    public List<RouteStatistics> calculateRouteStatistics() {
         String sql = """
-            SELECT to_city, COUNT(*) AS arrival_count
+            SELECT from_city, to_city, COUNT(*) AS flights, SUM(capacity) AS capacity, SUM(passenger_count) AS remaining_seats
             FROM flights
-            GROUP BY to_city
-            ORDER BY arrival_count DESC
-            LIMIT 1
+            GROUP BY from_city, to_city
         """;
 
-        return jdbcTemplate.queryForObject(
+        return jdbcTemplate.query(
                 sql,
-                (rs, rowNum) -> rs.getString("to_city")
-        );
-    }
-
-    public FlightStatistics calculateStatistics() {
-        return new FlightStatistics(
-                calculateTheMostDepartureCity(),
-                calculateTheMostVisitingCity(),
-                calculateTotalFlights()
+                (rs, rowNum) -> new RouteStatistics(
+                        rs.getString("from_city"),
+                        rs.getString("to_city"),
+                        rs.getLong("flights"),
+                        rs.getLong("capacity"),
+                        rs.getLong("remaining_seats")
+                )
         );
     }
 
@@ -0,0 +1,81 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Base64;
+import java.util.function.Function;
+
+/**
+ * Sort keys supported by keyset pagination. Every key is paired with the flight id as a
+ * tie-breaker, so a cursor is the (key, id) pair of the last row of the previous page.
+ */
+public enum FlightSort {
+
+    DEPARTURE("departure", FlightColumn.DEPARTURE, Flight::getDeparture, OffsetDateTime::parse),
+    ARRIVAL("arrival", FlightColumn.ARRIVAL, Flight::getArrival, OffsetDateTime::parse),
+    TICKET_PRICE("ticketPrice", FlightColumn.TICKET_PRICE, Flight::getTicketPrice, BigDecimal::new);
+
+    private final String field;
+    private final FlightColumn column;
+    private final Function<Flight, Object> keyExtractor;
+    private final Function<String, Object> keyParser;
+
+    FlightSort(String field, FlightColumn column, Function<Flight, Object> keyExtractor, Function<String, Object> keyParser) {
+        this.field = field;
+        this.column = column;
+        this.keyExtractor = keyExtractor;
+        this.keyParser = keyParser;
+    }
+
+    public FlightColumn column() {
+        return column;
+    }
+
+    public static FlightSort fromField(String field) {
+        if (field == null || field.isBlank()) {
+            return DEPARTURE;
+        }
+
+        for (FlightSort sort : values()) {
+            if (sort.field.equals(field)) {
+                return sort;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown sort field: " + field);
+    }
+
+    public String encodeCursor(Flight last) {
+        Object key = keyExtractor.apply(last);
+        String value = key instanceof BigDecimal decimal ? decimal.toPlainString() : key.toString();
+
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((value + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public Cursor decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+
+            return new Cursor(
+                    keyParser.apply(decoded.substring(0, separator)),
+                    Long.parseLong(decoded.substring(separator + 1))
+            );
+        }
+        catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed page cursor", e);
+        }
+    }
+
+    public record Cursor(Object key, long id) {
+    }
+
+}
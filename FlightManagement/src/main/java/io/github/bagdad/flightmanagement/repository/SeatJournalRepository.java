@@ -0,0 +1,88 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Timed("flight.repository")
+@Repository
+public class SeatJournalRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SeatJournalRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records a change of the flight's remaining seats, negative for reservations.
+     */
+    public void append(Long flightId, int delta) {
+        String sql = "INSERT INTO seat_journal (flight_id, delta) VALUES (?, ?)";
+
+        jdbcTemplate.update(sql, flightId, delta);
+    }
+
+    /**
+     * Adds all committed journal entries to their flights and deletes them, in one statement.
+     * Entries of deleted flights are dropped.
+     *
+     * @return number of flushed entries
+     */
+    public long flush(LocalDateTime updatedAt) {
+        String sql = """
+            WITH flushed AS (
+                DELETE FROM seat_journal
+                RETURNING flight_id, delta
+            ),
+            totals AS (
+                SELECT flight_id, SUM(delta) AS delta, COUNT(*) AS entries
+                FROM flushed
+                GROUP BY flight_id
+            ),
+            applied AS (
+                UPDATE flights SET
+                    passenger_count = flights.passenger_count + totals.delta,
+                    updated_at = ?
+                FROM totals
+                WHERE flights.id = totals.flight_id
+            )
+            SELECT COALESCE(SUM(entries), 0) FROM totals
+        """;
+
+        Long flushed = jdbcTemplate.queryForObject(sql, Long.class, updatedAt);
+
+        return flushed == null ? 0 : flushed;
+    }
+
+    /**
+     * @return remaining seats of the existing flights among {@code flightIds}, including
+     *         journal entries not flushed yet
+     */
+    public Map<Long, Integer> remainingSeats(Collection<Long> flightIds) {
+        String sql = """
+            SELECT
+                f.id,
+                f.passenger_count + COALESCE((SELECT SUM(j.delta) FROM seat_journal j WHERE j.flight_id = f.id), 0) AS remaining
+            FROM flights f
+            WHERE f.id = ANY(?)
+        """;
+
+        Map<Long, Integer> remaining = new HashMap<>();
+
+        jdbcTemplate.query(
+                sql,
+                (RowCallbackHandler) rs -> remaining.put(rs.getLong("id"), rs.getInt("remaining")),
+                (Object) flightIds.toArray(new Long[0])
+        );
+
+        return remaining;
+    }
+
+}
@@ -0,0 +1,176 @@
+package io.github.bagdad.flightmanagement.service;
+
+import io.github.bagdad.flightmanagement.repository.CatalogueVersionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Version of the flight list, drawn from the catalogue_version sequence by any instance. The read
+ * endpoints serve it as ETag and Last-Modified and answer a matching request with 304 without
+ * running the query.
+ * <p>
+ * A catalogue change draws one version after it commits, in a transaction of its own. Seat
+ * changes only mark the version as outdated; one version is drawn for all of them every
+ * {@code flight.catalogue-version.seat-window}, so bookings cost no round trip and a cached list
+ * may show seats up to that window old. A draw that fails is retried with the next window. The
+ * sequence is read at most once per {@code flight.catalogue-version.cache-ttl}; versions drawn by
+ * other instances show up within that time, versions drawn here at once.
+ * <p>
+ * Read the version before the data: a change committed in between then only costs the client a
+ * full response next time, never a stale one. With read replicas a fresh version may be served
+ * with data that does not contain it yet, so a version is only handed out once it is older than
+ * the replicas may lag behind, see {@link #isSettled}.
+ */
+@Slf4j
+@Component
+public class CatalogueVersion {
+
+    private final CatalogueVersionRepository repository;
+    private final TransactionTemplate newTransaction;
+    private final long cacheTtlNanos;
+    private final long settleMillis;
+
+    private final AtomicReference<Version> current = new AtomicReference<>();
+    private final ReentrantLock refresh = new ReentrantLock();
+    private volatile long refreshedAtNanos;
+    private final AtomicBoolean outdated = new AtomicBoolean();
+    private final ConcurrentSkipListSet<Long> drawnHere = new ConcurrentSkipListSet<>();
+
+    public CatalogueVersion(
+            CatalogueVersionRepository repository,
+            PlatformTransactionManager transactionManager,
+            @Value("${flight.catalogue-version.cache-ttl:100ms}") Duration cacheTtl,
+            @Value("${datasource.replicas.enabled:false}") boolean replicas,
+            @Value("${datasource.replicas.max-lag:2s}") Duration maxLag,
+            @Value("${datasource.replicas.lag-check-interval:1s}") Duration lagCheckInterval
+    ) {
+        this.repository = repository;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.cacheTtlNanos = cacheTtl.toNanos();
+        this.settleMillis = replicas ? maxLag.plus(lagCheckInterval).toMillis() : 0;
+    }
+
+    public Version current() {
+        Version version = current.get();
+
+        if (version != null && System.nanoTime() - refreshedAtNanos < cacheTtlNanos) {
+            return version;
+        }
+
+        // One reader refreshes, the others keep serving the cached version meanwhile.
+        if (version != null && !refresh.tryLock()) {
+            return version;
+        }
+
+        if (version == null) {
+            refresh.lock();
+        }
+
+        try {
+            version = observe(repository.current());
+            refreshedAtNanos = System.nanoTime();
+
+            return version;
+        }
+        finally {
+            refresh.unlock();
+        }
+    }
+
+    /**
+     * Whether every data source a read may go to reflects the version.
+     */
+    public boolean isSettled(Version version) {
+        return System.currentTimeMillis() - version.lastModified() >= settleMillis;
+    }
+
+    /**
+     * Draws a new version once the current transaction commits, or now outside of one.
+     */
+    public void changed() {
+        afterCommit(this::draw);
+    }
+
+    /**
+     * Marks the version outdated once the current transaction commits, see
+     * {@link #drawForSeatChanges()}.
+     */
+    public void seatsChanged() {
+        afterCommit(() -> outdated.set(true));
+    }
+
+    @Scheduled(fixedDelayString = "${flight.catalogue-version.seat-window:1s}")
+    public void drawForSeatChanges() {
+        if (outdated.getAndSet(false)) {
+            draw();
+        }
+    }
+
+    /**
+     * Whether another instance drew one of the versions after {@code since} up to {@code until}.
+     * Every nextval of the sequence is a draw, so any version not drawn here was drawn elsewhere.
+     * Forgets the versions drawn here up to {@code since}.
+     */
+    public boolean drawnElsewhere(long since, long until) {
+        drawnHere.headSet(since, true).clear();
+
+        return until - since > drawnHere.subSet(since, false, until, true).size();
+    }
+
+    private void draw() {
+        try {
+            // The committed transaction's connection is done, nextval runs in a new one.
+            long value = newTransaction.execute(status -> repository.next());
+            drawnHere.add(value);
+            observe(value);
+        }
+        catch (RuntimeException e) {
+            log.warn("Could not draw a catalogue version, retrying with the next seat window", e);
+            outdated.set(true);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+    // Last-Modified is when this instance first saw the version, never before its commit.
+    private Version observe(long value) {
+        return current.updateAndGet(version -> version != null && version.value() >= value
+                ? version
+                : new Version(value, System.currentTimeMillis()));
+    }
+
+    public record Version(long value, long lastModified) {
+
+        public String eTag() {
+            return "\"" + Long.toString(value, 36) + "\"";
+        }
+
+    }
+
+}
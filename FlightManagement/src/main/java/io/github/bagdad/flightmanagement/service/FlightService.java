@@ -1,31 +1,70 @@
 package io.github.bagdad.flightmanagement.service;
 
+import io.github.bagdad.models.requests.FlightPageRequest;
 import io.github.bagdad.models.requests.FlightQueryRequest;
 import io.github.bagdad.flightmanagement.exception.FlightNotFoundException;
 import io.github.bagdad.flightmanagement.helper.CSVHelper;
+import io.github.bagdad.flightmanagement.index.FlightRouteIndex;
 import io.github.bagdad.flightmanagement.messaging.FlightEventPublisher;
 import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.flightmanagement.model.FlightPage;
+import io.github.bagdad.flightmanagement.model.FlightProjection;
 import io.github.bagdad.flightmanagement.model.FlightStatistics;
+import io.github.bagdad.flightmanagement.model.ImportReport;
+import io.github.bagdad.flightmanagement.repository.FlightColumn;
 import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.github.bagdad.flightmanagement.repository.FlightSort;
 import io.github.bagdad.models.events.*;
-import org.springframework.core.io.InputStreamResource;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
+@Slf4j
 @Service
 public class FlightService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int CANCELLED_FLIGHTS_PER_EVENT = 1000;
+
     private final FlightEventPublisher publisher;
     private final FlightRepository repository;
-
-    FlightService(FlightEventPublisher publisher, FlightRepository repository) {
+    private final FlightRouteIndex routeIndex;
+    private final FlightStatisticsCache statisticsCache;
+    private final SeatLedger seatLedger;
+    private final CatalogueVersion catalogueVersion;
+    private final int importChunkSize;
+
+    FlightService(
+            FlightEventPublisher publisher,
+            FlightRepository repository,
+            FlightRouteIndex routeIndex,
+            FlightStatisticsCache statisticsCache,
+            SeatLedger seatLedger,
+            CatalogueVersion catalogueVersion,
+            @Value("${flight.import.chunk-size:5000}") int importChunkSize
+    ) {
         this.publisher = publisher;
         this.repository = repository;
+        this.routeIndex = routeIndex;
+        this.statisticsCache = statisticsCache;
+        this.seatLedger = seatLedger;
+        this.catalogueVersion = catalogueVersion;
+        this.importChunkSize = importChunkSize;
     }
 
     public Flight create(Flight flight) {
@@ -34,7 +73,12 @@ public class FlightService {
         flight.setCreatedAt(now);
         flight.setUpdatedAt(now);
 
-        return repository.save(flight);
+        Flight saved = repository.save(flight);
+        routeIndex.put(saved);
+        statisticsCache.invalidate();
+        catalogueVersion.changed();
+
+        return saved;
     }
 
     public Flight update(Flight flight) {
@@ -49,17 +93,60 @@ public class FlightService {
         if (flight.getTicketPrice() != null) existing.setTicketPrice(flight.getTicketPrice());
 
         existing.setUpdatedAt(LocalDateTime.now());
-        return repository.update(existing);
+
+        Flight updated = repository.update(existing);
+        routeIndex.put(updated);
+        statisticsCache.invalidate();
+        catalogueVersion.changed();
+
+        return updated;
     }
 
+    /**
+     * Read-only, so with replicas enabled the list is read from one. The route index loads through
+     * the repository directly and stays on the primary.
+     */
+    @Transactional(readOnly = true)
     public List<Flight> findAll() {
         return repository.findAll();
     }
 
+    /**
+     * Route searches are answered from the in-memory index when it is enabled, everything else
+     * goes to the database.
+     */
+    @Transactional(readOnly = true)
     public List<Flight> query(FlightQueryRequest query) {
-        return repository.query(query);
+        return routeIndex.query(query)
+                .orElseGet(() -> repository.query(query));
+    }
+
+    @Transactional(readOnly = true)
+    public FlightPage page(FlightQueryRequest query, FlightPageRequest page) {
+        // Clamped as well, the service is not only reached through the validated endpoint.
+        int size = page.size() == null ? DEFAULT_PAGE_SIZE : Math.clamp(page.size(), 1, MAX_PAGE_SIZE);
+        FlightSort sort = FlightSort.fromField(page.sort());
+        boolean descending = "desc".equalsIgnoreCase(page.direction());
+
+        List<Flight> flights = repository.queryPage(
+                query,
+                sort,
+                descending,
+                sort.decodeCursor(page.cursor()),
+                FlightColumn.projection(page.fields(), sort),
+                size + 1
+        );
+
+        if (flights.size() <= size) {
+            return new FlightPage(flights.stream().map(FlightProjection::of).toList(), null);
+        }
+
+        List<Flight> items = flights.subList(0, size);
+
+        return new FlightPage(items.stream().map(FlightProjection::of).toList(), sort.encodeCursor(items.get(size - 1)));
     }
 
+    @Transactional
     public void deleteById(Long id) {
         Flight existingFlight = repository.findById(id)
                 .orElseThrow(() -> new FlightNotFoundException(id));
@@ -67,97 +154,290 @@ public class FlightService {
         publisher.publishFlightCancelled(existingFlight);
 
         repository.deleteById(id);
+        routeIndex.remove(id);
+        seatLedger.forget(id);
+        statisticsCache.invalidate();
+        catalogueVersion.changed();
     }
 
-    public InputStreamResource load() throws IOException {
-        List<Flight> bookings = findAll();
+    /**
+     * Deletes the given flights and announces them in FlightsCancelled events of at most
+     * {@value #CANCELLED_FLIGHTS_PER_EVENT} ids. Unknown ids are ignored.
+     *
+     * @return ids of the deleted flights
+     */
+    @Transactional
+    public List<Long> deleteAllById(List<Long> ids) {
+        List<Long> deleted = repository.deleteAllById(ids);
+
+        for (int from = 0; from < deleted.size(); from += CANCELLED_FLIGHTS_PER_EVENT) {
+            publisher.publishFlightsCancelled(
+                    List.copyOf(deleted.subList(from, Math.min(from + CANCELLED_FLIGHTS_PER_EVENT, deleted.size())))
+            );
+        }
 
-        return new InputStreamResource(
-                CSVHelper.writeToCSC(bookings)
-        );
+        deleted.forEach(routeIndex::remove);
+        deleted.forEach(seatLedger::forget);
+        statisticsCache.invalidate();
+        catalogueVersion.changed();
+
+        return deleted;
     }
 
-    public void importFromCSV(InputStream file) throws IOException {
-        List<Flight> flights = CSVHelper.loadFromCSV(file);
+    /**
+     * Writes all flights as CSV while reading them, so memory use does not depend on table size.
+     */
+    @Transactional(readOnly = true)
+    public void exportToCSV(OutputStream outputStream) throws IOException {
+        CSVPrinter csvPrinter = CSVHelper.openPrinter(outputStream);
 
-        if (!flights.isEmpty()) {
-            repository.saveAll(flights);
+        try {
+            repository.forEach(flight -> CSVHelper.print(csvPrinter, flight));
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
         }
+
+        csvPrinter.flush();
     }
 
-    @Transactional
-    public void reserve(BookingCreated event) {
-        Flight flight = repository.findById(event.getFlightId())
-                .orElseThrow(() -> new FlightNotFoundException(event.getFlightId()));
+    /**
+     * Parses the upload record by record and writes it in chunks of {@code flight.import.chunk-size}
+     * rows, so neither the heap nor a single transaction grows with the file. Chunks commit on their
+     * own; a chunk the database refuses stops the import, and the report names its lines next to
+     * the rows already imported.
+     */
+    public ImportReport importFromCSV(InputStream file) throws IOException {
+        long startedAt = System.nanoTime();
+
+        ImportReport report = new ImportReport();
+        List<Flight> chunk = new ArrayList<>(importChunkSize);
+        long chunkFirstLine = 0;
+
+        try (CSVParser csvParser = CSVHelper.openParser(file)) {
+            for (CSVRecord record : csvParser) {
+                report.rowRead();
+
+                try {
+                    chunk.add(CSVHelper.parse(record));
+                }
+                catch (RuntimeException e) {
+                    report.reject(csvParser.getCurrentLineNumber(), e.getMessage());
+                    continue;
+                }
+
+                if (chunk.size() == 1) {
+                    chunkFirstLine = csvParser.getCurrentLineNumber();
+                }
+
+                if (chunk.size() == importChunkSize) {
+                    if (!importChunk(chunk, chunkFirstLine, csvParser.getCurrentLineNumber(), report)) {
+                        break;
+                    }
+                    chunk.clear();
+                }
+            }
 
-        if (flight.canBook(event.getPassengerCount())) {
-            flight.book(event.getPassengerCount());
+            if (!chunk.isEmpty() && report.getFailure() == null) {
+                importChunk(chunk, chunkFirstLine, csvParser.getCurrentLineNumber(), report);
+            }
+        }
+        finally {
+            // Chunks commit on their own, so a failing chunk leaves the earlier ones in the table.
+            if (report.getImportedRows() > 0) {
+                routeIndex.reload();
+                statisticsCache.invalidate();
+                catalogueVersion.changed();
+            }
+        }
 
-            LocalDateTime now = LocalDateTime.now();
+        report.finish(System.nanoTime() - startedAt);
 
-            flight.setUpdatedAt(now);
+        return report;
+    }
+
+    private boolean importChunk(List<Flight> chunk, long firstLine, long lastLine, ImportReport report) {
+        try {
+            report.imported(repository.copyAll(chunk));
+            return true;
+        }
+        catch (DataAccessException | UncheckedIOException e) {
+            log.error("Import stopped at lines {}-{}", firstLine, lastLine, e);
+            report.fail(firstLine, lastLine, e.getMessage());
+            return false;
+        }
+    }
 
-            repository.updatePassengerCount(flight);
+    @Transactional
+    public void reserve(BookingCreated event) {
+        Optional<Integer> remainingSeats = seatLedger.reserveSeats(event.getFlightId(), event.getPassengerCount());
 
+        if (remainingSeats.isPresent()) {
+            seatsChanged(event.getFlightId(), -event.getPassengerCount());
             publisher.publishBookingConfirmed(event);
         }
         else {
+            requireExists(event.getFlightId());
+
             publisher.publishBookingRejected(event);
         }
     }
 
-    public void cancelReservation(BookingCancelled event) {
-        Flight flight = repository.findById(event.getFlightId())
-                .orElseThrow(() -> new FlightNotFoundException(event.getFlightId()));
+    /**
+     * Settles a batch of bookings for one flight in a single transaction. Bookings are
+     * served in arrival order; those that no longer fit are rejected.
+     */
+    @Transactional
+    public void reserveAll(Long flightId, List<BookingCreated> events) {
+        int requestedSeats = events.stream()
+                .mapToInt(BookingCreated::getPassengerCount)
+                .sum();
 
-        flight.cancelReservation(event.getPassengerCount());
+        Optional<Integer> reservedAll = seatLedger.reserveSeats(flightId, requestedSeats);
 
-        LocalDateTime now = LocalDateTime.now();
+        if (reservedAll.isPresent()) {
+            seatsChanged(flightId, -requestedSeats);
+            publisher.publishBookingsConfirmed(events);
+            return;
+        }
 
-        flight.setUpdatedAt(now);
+        if (seatLedger.manages(flightId)) {
+            reserveEach(flightId, events);
+            return;
+        }
+
+        Optional<Integer> lockedSeats = repository.lockRemainingSeats(flightId);
 
-        repository.updatePassengerCount(flight);
+        if (lockedSeats.isEmpty()) {
+            publisher.publishBookingsRejected(events);
+            return;
+        }
+
+        int remainingSeats = lockedSeats.get();
+        List<BookingCreated> confirmed = new ArrayList<>();
+        List<BookingCreated> rejected = new ArrayList<>();
+
+        for (BookingCreated event : events) {
+            if (event.getPassengerCount() <= remainingSeats) {
+                remainingSeats -= event.getPassengerCount();
+                confirmed.add(event);
+            }
+            else {
+                rejected.add(event);
+            }
+        }
+
+        if (!confirmed.isEmpty()) {
+            repository.reserveSeats(flightId, lockedSeats.get() - remainingSeats, LocalDateTime.now());
+            seatsChanged(flightId, remainingSeats - lockedSeats.get());
+        }
+
+        publisher.publishBookingsConfirmed(confirmed);
+        publisher.publishBookingsRejected(rejected);
     }
 
-    public void updateBookingOnFlight(BookingUpdated event) {
-        Flight flight = repository.findById(event.getFlightId())
+    /**
+     * Settles the bookings of a batch request like {@link #reserveAll}, in the order they were submitted.
+     */
+    @Transactional
+    public void reserveBatch(BookingBatchCreated event) {
+        List<BookingCreated> events = new ArrayList<>(event.getBookingIds().size());
+
+        for (int i = 0; i < event.getBookingIds().size(); i++) {
+            events.add(new BookingCreated(event.getBookingIds().get(i), event.getFlightId(), event.getPassengerCounts().get(i)));
+        }
+
+        reserveAll(event.getFlightId(), events);
+    }
+
+    /**
+     * Releases the seats of all bookings of a batch cancellation with one update.
+     */
+    public void cancelBatch(BookingBatchCancelled event) {
+        seatLedger.releaseSeats(event.getFlightId(), event.getPassengerCount())
                 .orElseThrow(() -> new FlightNotFoundException(event.getFlightId()));
 
-        int passengerCountDiff = event.getCurrentPassengerCount() - event.getNewPassengerCount();
+        seatsChanged(event.getFlightId(), event.getPassengerCount());
+    }
 
-        if (passengerCountDiff >= 0) {
-            flight.cancelReservation(passengerCountDiff);
+    public void cancelReservation(BookingCancelled event) {
+        seatLedger.releaseSeats(event.getFlightId(), event.getPassengerCount())
+                .orElseThrow(() -> new FlightNotFoundException(event.getFlightId()));
 
-            LocalDateTime now = LocalDateTime.now();
+        seatsChanged(event.getFlightId(), event.getPassengerCount());
+    }
 
-            flight.setUpdatedAt(now);
+    @Transactional
+    public void updateBookingOnFlight(BookingUpdated event) {
+        int passengerCountDiff = event.getCurrentPassengerCount() - event.getNewPassengerCount();
 
-            repository.updatePassengerCount(flight);
+        if (passengerCountDiff >= 0) {
+            seatLedger.releaseSeats(event.getFlightId(), passengerCountDiff)
+                    .orElseThrow(() -> new FlightNotFoundException(event.getFlightId()));
 
+            seatsChanged(event.getFlightId(), passengerCountDiff);
             publisher.publishBookingUpdateConfirmed(event);
         }
         else {
-            int absolutePassengerCountDiff = Math.abs(passengerCountDiff);
+            Optional<Integer> remainingSeats = seatLedger.reserveSeats(event.getFlightId(), Math.abs(passengerCountDiff));
 
-            if (flight.canBook(absolutePassengerCountDiff)) {
-                flight.book(absolutePassengerCountDiff);
+            if (remainingSeats.isPresent()) {
+                seatsChanged(event.getFlightId(), passengerCountDiff);
+                publisher.publishBookingUpdateConfirmed(event);
+            }
+            else {
+                requireExists(event.getFlightId());
 
-                LocalDateTime now = LocalDateTime.now();
+                publisher.publishBookingUpdateRejected(event);
+            }
+        }
+    }
 
-                flight.setUpdatedAt(now);
+    /**
+     * First fit for a ledger flight: the counter is taken per booking, no row lock is needed.
+     */
+    private void reserveEach(Long flightId, List<BookingCreated> events) {
+        List<BookingCreated> confirmed = new ArrayList<>();
+        List<BookingCreated> rejected = new ArrayList<>();
+        int reservedSeats = 0;
 
-                repository.updatePassengerCount(flight);
+        for (BookingCreated event : events) {
+            Optional<Integer> reserved = seatLedger.reserveSeats(flightId, event.getPassengerCount());
 
-                publisher.publishBookingUpdateConfirmed(event);
+            if (reserved.isPresent()) {
+                reservedSeats += event.getPassengerCount();
+                confirmed.add(event);
             }
             else {
-                publisher.publishBookingUpdateRejected(event);
+                rejected.add(event);
             }
         }
+
+        if (reservedSeats > 0) {
+            seatsChanged(flightId, -reservedSeats);
+        }
+
+        publisher.publishBookingsConfirmed(confirmed);
+        publisher.publishBookingsRejected(rejected);
+    }
+
+    /**
+     * @param delta seats given back (positive) or taken (negative) by the current transaction
+     */
+    private void seatsChanged(Long flightId, int delta) {
+        routeIndex.updateSeats(flightId, delta);
+        catalogueVersion.seatsChanged();
+    }
+
+    private void requireExists(Long flightId) {
+        if (!repository.existsById(flightId)) {
+            throw new FlightNotFoundException(flightId);
+        }
     }
 
+    @Transactional(readOnly = true)
     public FlightStatistics calculateStatistics() {
-        return repository.calculateStatistics();
+        return statisticsCache.get();
     }
 
 }
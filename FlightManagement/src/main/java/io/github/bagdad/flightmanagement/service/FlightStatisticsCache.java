@@ -0,0 +1,147 @@
+package io.github.bagdad.flightmanagement.service;
+
+import io.github.bagdad.flightmanagement.model.FlightStatistics;
+import io.github.bagdad.flightmanagement.model.RouteStatistics;
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the last computed statistics for at most {@code flight.statistics.max-staleness}.
+ * Catalogue changes drop the snapshot right away; seat changes only show up once it expires.
+ */
+@Component
+public class FlightStatisticsCache {
+
+    private final FlightRepository repository;
+    private final long maxStalenessNanos;
+    private final int topRoutes;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock recalculation = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public FlightStatisticsCache(
+            FlightRepository repository,
+            @Value("${flight.statistics.max-staleness:30s}") Duration maxStaleness,
+            @Value("${flight.statistics.top-routes:10}") int topRoutes
+    ) {
+        this.repository = repository;
+        this.maxStalenessNanos = maxStaleness.toNanos();
+        this.topRoutes = topRoutes;
+    }
+
+    public FlightStatistics get() {
+        Snapshot current = snapshot;
+
+        if (current != null && current.isFresh(maxStalenessNanos)) {
+            return current.statistics();
+        }
+
+        // A lock rather than synchronized: a virtual thread blocked on JDBC inside a monitor pins its carrier.
+        recalculation.lock();
+        try {
+            current = snapshot;
+
+            if (current != null && current.isFresh(maxStalenessNanos)) {
+                return current.statistics();
+            }
+
+            long startedGeneration = generation.get();
+            FlightStatistics statistics = calculate(repository.calculateRouteStatistics());
+
+            // An invalidation during the scan means the result may already miss that change.
+            if (generation.get() == startedGeneration) {
+                snapshot = new Snapshot(statistics, System.nanoTime());
+            }
+
+            return statistics;
+        }
+        finally {
+            recalculation.unlock();
+        }
+    }
+
+    /**
+     * Drops the snapshot, after commit when called inside a transaction so the next calculation
+     * sees the change.
+     */
+    public void invalidate() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop();
+                }
+            });
+        }
+        else {
+            drop();
+        }
+    }
+
+    private void drop() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private FlightStatistics calculate(List<RouteStatistics> routes) {
+        Map<String, Long> departures = new HashMap<>();
+        Map<String, Long> arrivals = new HashMap<>();
+        long totalFlights = 0;
+        long capacity = 0;
+        long remainingSeats = 0;
+
+        for (RouteStatistics route : routes) {
+            departures.merge(route.getFromCity(), route.getFlights(), Long::sum);
+            arrivals.merge(route.getToCity(), route.getFlights(), Long::sum);
+            totalFlights += route.getFlights();
+            capacity += route.getCapacity();
+            remainingSeats += route.getRemainingSeats();
+        }
+
+        List<RouteStatistics> busiestRoutes = routes.stream()
+                .sorted(Comparator.comparingLong(RouteStatistics::getFlights).reversed()
+                        .thenComparing(RouteStatistics::getFromCity)
+                        .thenComparing(RouteStatistics::getToCity))
+                .limit(topRoutes)
+                .toList();
+
+        return new FlightStatistics(
+                mostFrequent(departures),
+                mostFrequent(arrivals),
+                Math.toIntExact(totalFlights),
+                capacity == 0 ? 0 : 1 - (double) remainingSeats / capacity,
+                busiestRoutes,
+                LocalDateTime.now()
+        );
+    }
+
+    private static String mostFrequent(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .max(Map.Entry.<String, Long>comparingByValue()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .orElse(null);
+    }
+
+    private record Snapshot(FlightStatistics statistics, long calculatedAtNanos) {
+
+        boolean isFresh(long maxStalenessNanos) {
+            return System.nanoTime() - calculatedAtNanos < maxStalenessNanos;
+        }
+
+    }
+
+}
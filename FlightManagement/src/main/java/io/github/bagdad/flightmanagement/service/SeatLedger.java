@@ -0,0 +1,351 @@
+package io.github.bagdad.flightmanagement.service;
+
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.github.bagdad.flightmanagement.repository.SeatJournalRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Remaining seats of the flights in {@code flight.seat-ledger.flights}, decided in memory so that
+ * bookings of a hot flight do not queue on its row lock. Other flights are passed through to
+ * {@link FlightRepository}.
+ * <p>
+ * Every decision appends its delta to seat_journal in the caller's transaction and is undone in
+ * memory if that transaction rolls back. The journal is folded into the flights table every
+ * {@code flush-interval} or {@code flush-threshold} entries, and once at startup before the
+ * counters are loaded, so after a crash the counters resume from committed decisions only. Until
+ * a flush, the flights table lags behind the ledger.
+ * <p>
+ * The counters are local to this instance, so only one instance may run the ledger. It holds a
+ * session advisory lock for as long as it does, and an instance that cannot take the lock at
+ * startup fails to start. If the lock's session is lost, decisions on ledger flights fail as
+ * transient until the decisions in flight have completed and the lock is taken again; the
+ * counters are then reloaded from the flights table and the journal. Every instance must set the
+ * same {@code flight.seat-ledger.flights}, other instances would change the seats in the table
+ * behind the ledger's back.
+ */
+@Slf4j
+@Component
+public class SeatLedger {
+
+    private final FlightRepository repository;
+    private final SeatJournalRepository journal;
+    private final DataSource dataSource;
+    private final CatalogueVersion catalogueVersion;
+    private final Set<Long> flightIds;
+    private final long flushIntervalNanos;
+    private final int flushThreshold;
+
+    private final Map<Long, AtomicInteger> remaining = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong lastFlushAt = new AtomicLong(System.nanoTime());
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Pooled session holding the ownership lock, kept out of the pool while the ledger runs.
+    private Connection ownership;
+    private volatile boolean owner;
+    private volatile boolean released;
+
+    public SeatLedger(
+            FlightRepository repository,
+            SeatJournalRepository journal,
+            DataSource dataSource,
+            CatalogueVersion catalogueVersion,
+            MeterRegistry registry,
+            @Value("${flight.seat-ledger.flights:}") Set<Long> flightIds,
+            @Value("${flight.seat-ledger.flush-interval:1s}") Duration flushInterval,
+            @Value("${flight.seat-ledger.flush-threshold:1000}") int flushThreshold
+    ) {
+        this.repository = repository;
+        this.journal = journal;
+        this.dataSource = dataSource;
+        this.catalogueVersion = catalogueVersion;
+        this.flightIds = flightIds;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.flushThreshold = flushThreshold;
+
+        Gauge.builder("flight.seat-ledger.pending", pending, AtomicInteger::get)
+                .description("Committed seat journal entries not yet applied to the flights table")
+                .register(registry);
+    }
+
+    /**
+     * Takes ownership of the ledger, applies what a previous run left in the journal and loads the
+     * counters. Runs before the listener containers start, so no decision is made on stale seats.
+     */
+    @PostConstruct
+    public synchronized void recover() {
+        if (!flightIds.isEmpty() && !acquireOwnership()) {
+            throw new IllegalStateException("The seat ledger runs on another instance, "
+                    + "flight.seat-ledger.flights " + flightIds + " must be handled by a single instance");
+        }
+
+        long flushed = journal.flush(LocalDateTime.now());
+
+        if (flushed > 0) {
+            log.info("Applied {} seat journal entries left from the previous run", flushed);
+        }
+
+        if (!flightIds.isEmpty()) {
+            journal.remainingSeats(flightIds).forEach((flightId, seats) -> remaining.put(flightId, new AtomicInteger(seats)));
+            owner = true;
+            log.info("Seat ledger manages flights {}", remaining.keySet());
+        }
+    }
+
+    /**
+     * Fences the ledger when the session of its lock is gone, and takes the lock again once no
+     * decision of the old session can still commit.
+     */
+    @Scheduled(fixedDelayString = "${flight.seat-ledger.ownership-check-interval:1s}")
+    public synchronized void checkOwnership() {
+        if (flightIds.isEmpty() || released) {
+            return;
+        }
+
+        if (owner && isValid(ownership)) {
+            return;
+        }
+
+        if (owner) {
+            owner = false;
+            log.error("Seat ledger lost its lock, decisions on flights {} fail until it is taken again", remaining.keySet());
+        }
+
+        if (inFlight.get() > 0 || !acquireOwnership()) {
+            return;
+        }
+
+        journal.flush(LocalDateTime.now());
+        journal.remainingSeats(flightIds).forEach((flightId, seats) -> remaining.put(flightId, new AtomicInteger(seats)));
+        owner = true;
+        log.info("Seat ledger took its lock again, counters reloaded for flights {}", remaining.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        released = true;
+        owner = false;
+
+        if (ownership != null && isValid(ownership)) {
+            // The session outlives close() in the pool, so the lock is given back explicitly.
+            try (Statement statement = ownership.createStatement()) {
+                statement.execute("SELECT pg_advisory_unlock_all()");
+            }
+            catch (SQLException e) {
+                log.warn("Could not release the seat ledger lock", e);
+            }
+        }
+
+        close(ownership);
+        ownership = null;
+    }
+
+    public boolean manages(Long flightId) {
+        return remaining.containsKey(flightId);
+    }
+
+    /**
+     * Committed remaining seats of the ledger flights, the flights table plus the journal entries
+     * not flushed yet.
+     */
+    public Map<Long, Integer> committedSeats() {
+        return remaining.isEmpty() ? Map.of() : journal.remainingSeats(remaining.keySet());
+    }
+
+    /**
+     * Same contract as {@link FlightRepository#reserveSeats}.
+     */
+    public Optional<Integer> reserveSeats(Long flightId, int seats) {
+        AtomicInteger counter = remaining.get(flightId);
+
+        if (counter == null) {
+            return repository.reserveSeats(flightId, seats, LocalDateTime.now());
+        }
+
+        requireOwnership(flightId);
+
+        int current;
+        do {
+            current = counter.get();
+
+            if (current < seats) {
+                return Optional.empty();
+            }
+        }
+        while (!counter.compareAndSet(current, current - seats));
+
+        journal(flightId, counter, -seats);
+
+        return Optional.of(current - seats);
+    }
+
+    /**
+     * Same contract as {@link FlightRepository#releaseSeats}.
+     */
+    public Optional<Integer> releaseSeats(Long flightId, int seats) {
+        AtomicInteger counter = remaining.get(flightId);
+
+        if (counter == null) {
+            return repository.releaseSeats(flightId, seats, LocalDateTime.now());
+        }
+
+        requireOwnership(flightId);
+
+        int released = counter.addAndGet(seats);
+        journal(flightId, counter, seats);
+
+        return Optional.of(released);
+    }
+
+    /**
+     * Stops tracking a deleted flight once the deletion commits. Its journal entries are dropped by
+     * the next flush.
+     */
+    public void forget(Long flightId) {
+        if (manages(flightId)) {
+            onCompletion(status -> {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    remaining.remove(flightId);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${flight.seat-ledger.flush-check-interval:100ms}")
+    public void flushIfDue() {
+        if (pending.get() == 0) {
+            return;
+        }
+
+        if (pending.get() < flushThreshold && System.nanoTime() - lastFlushAt.get() < flushIntervalNanos) {
+            return;
+        }
+
+        long flushed = journal.flush(LocalDateTime.now());
+
+        lastFlushAt.set(System.nanoTime());
+        // Entries can be flushed before their after-commit callback counted them.
+        pending.updateAndGet(count -> (int) Math.max(0, count - flushed));
+
+        // Database queries only see ledger seats from here on.
+        if (flushed > 0) {
+            catalogueVersion.seatsChanged();
+        }
+    }
+
+    private void journal(Long flightId, AtomicInteger counter, int delta) {
+        inFlight.incrementAndGet();
+
+        try {
+            journal.append(flightId, delta);
+        }
+        catch (RuntimeException e) {
+            counter.addAndGet(-delta);
+            inFlight.decrementAndGet();
+            throw e;
+        }
+
+        onCompletion(status -> {
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                pending.incrementAndGet();
+            }
+            else {
+                counter.addAndGet(-delta);
+            }
+
+            inFlight.decrementAndGet();
+        });
+    }
+
+    // Transient, so the listener requeues the event until the lock is taken again.
+    private void requireOwnership(Long flightId) {
+        if (!owner) {
+            throw new CannotAcquireLockException("Seat ledger of flight " + flightId + " is not owned by this instance");
+        }
+    }
+
+    private boolean acquireOwnership() {
+        Connection connection = null;
+
+        try {
+            connection = dataSource.getConnection();
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT pg_try_advisory_lock(hashtext('seat_ledger'))")) {
+                if (result.next() && result.getBoolean(1)) {
+                    close(ownership);
+                    ownership = connection;
+                    return true;
+                }
+            }
+        }
+        catch (SQLException e) {
+            log.warn("Could not take the seat ledger lock", e);
+        }
+
+        close(connection);
+        return false;
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(1);
+        }
+        catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static void close(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+
+        try {
+            connection.close();
+        }
+        catch (SQLException e) {
+            log.debug("Could not close the seat ledger lock session", e);
+        }
+    }
+
+    private static void onCompletion(IntConsumer action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    action.accept(status);
+                }
+            });
+        }
+        else {
+            action.accept(TransactionSynchronization.STATUS_COMMITTED);
+        }
+    }
+
+}
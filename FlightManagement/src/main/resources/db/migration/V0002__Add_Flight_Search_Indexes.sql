@@ -0,0 +1,16 @@
+-- Route search: equality on the route, range on departure, price ceiling checked inside the index.
+CREATE INDEX IF NOT EXISTS idx_flight_route_departure ON flights(from_city, to_city, departure, ticket_price);
+
+-- Covered by the leading column of idx_flight_route_departure.
+DROP INDEX IF EXISTS idx_flight_from_city;
+
+-- Keyset pagination on (departure, id).
+CREATE INDEX IF NOT EXISTS idx_flight_departure_id ON flights(departure, id);
+
+-- Arrival correlates with insertion order for schedule loads, a BRIN index stays tiny.
+CREATE INDEX IF NOT EXISTS idx_flight_arrival_brin ON flights USING BRIN (arrival);
+
+-- Searches for flights that still have seats.
+CREATE INDEX IF NOT EXISTS idx_flight_available_departure ON flights(departure) WHERE passenger_count > 0;
+
+ANALYZE flights;
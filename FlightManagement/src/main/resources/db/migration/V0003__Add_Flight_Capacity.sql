@@ -0,0 +1,23 @@
+-- passenger_count holds the seats still available, capacity keeps what the flight was created with
+-- so the load factor can be reported. Existing rows only know their current availability.
+ALTER TABLE flights ADD COLUMN IF NOT EXISTS capacity SMALLINT;
+
+UPDATE flights SET capacity = passenger_count WHERE capacity IS NULL;
+
+ALTER TABLE flights ALTER COLUMN capacity SET NOT NULL;
+
+-- Inserts and COPY do not list the column, default it to the initial passenger count.
+CREATE OR REPLACE FUNCTION flights_default_capacity() RETURNS trigger AS $$
+BEGIN
+    IF NEW.capacity IS NULL THEN
+        NEW.capacity := NEW.passenger_count;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_flights_default_capacity ON flights;
+
+CREATE TRIGGER trg_flights_default_capacity
+    BEFORE INSERT ON flights
+    FOR EACH ROW EXECUTE FUNCTION flights_default_capacity();
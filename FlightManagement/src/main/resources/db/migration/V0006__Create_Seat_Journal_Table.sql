@@ -0,0 +1,9 @@
+-- Seat changes of flights managed by the in-memory seat ledger, written in the transaction that
+-- made the decision. The ledger periodically folds them into flights.passenger_count and deletes
+-- them in one statement, so a crash loses nothing and applies nothing twice.
+CREATE TABLE IF NOT EXISTS seat_journal (
+    id BIGSERIAL PRIMARY KEY,
+    flight_id BIGINT NOT NULL,
+    delta INTEGER NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
@@ -0,0 +1,4 @@
+-- Version of the flight catalogue shared by all instances, served as the ETag of the flight list
+-- endpoints. Every change of a flight or of its seats draws a new value; nextval takes no row lock,
+-- so the booking hot path does not queue on it.
+CREATE SEQUENCE IF NOT EXISTS catalogue_version;
@@ -0,0 +1,39 @@
+package io.github.bagdad.flightmanagement;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Throwaway embedded PostgreSQL shared by the tests of this JVM, migrated by the service's own
+ * Flyway scripts when a context starts on it. Stopped by its own shutdown hook, cached contexts
+ * keep using it until then.
+ */
+public final class TestDatabase {
+
+    private static final EmbeddedPostgres POSTGRES = start();
+
+    private TestDatabase() {
+    }
+
+    /**
+     * Points spring.datasource at the embedded database, call from a {@code @DynamicPropertySource}.
+     */
+    public static void register(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> POSTGRES.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+    }
+
+    private static EmbeddedPostgres start() {
+        try {
+            return EmbeddedPostgres.builder().start();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
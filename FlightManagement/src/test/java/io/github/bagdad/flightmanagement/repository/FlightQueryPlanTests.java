@@ -0,0 +1,87 @@
+package io.github.bagdad.flightmanagement.repository;
+
+import io.github.bagdad.flightmanagement.TestDatabase;
+import io.github.bagdad.models.requests.FlightQueryRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+class FlightQueryPlanTests {
+
+    private static final OffsetDateTime FROM = OffsetDateTime.of(2030, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final OffsetDateTime TO = FROM.plusDays(7);
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void disableSequentialScans() {
+        // The test table is tiny, so without this the planner would rightly prefer a sequential scan.
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Test
+    void routeSearchUsesRouteDepartureIndex() {
+        FlightQueryRequest query = new FlightQueryRequest(
+                null, "Moscow", "Kazan", FROM, TO, null, null, null, null, null, new BigDecimal("150.00")
+        );
+
+        assertThat(explain(FlightQueryBuilder.select(query))).contains("idx_flight_route_departure");
+    }
+
+    @Test
+    void arrivalWindowUsesBrinIndex() {
+        FlightQueryRequest query = new FlightQueryRequest(
+                null, null, null, null, null, FROM, TO, null, null, null, null
+        );
+
+        assertThat(explain(FlightQueryBuilder.select(query))).contains("idx_flight_arrival_brin");
+    }
+
+    @Test
+    void availableSeatsSearchUsesPartialIndex() {
+        FlightQueryRequest query = new FlightQueryRequest(
+                null, null, null, FROM, TO, null, null, 1, null, null, null
+        );
+
+        assertThat(explain(FlightQueryBuilder.select(query))).contains("idx_flight_available_departure");
+    }
+
+    @Test
+    void defaultPageUsesDepartureIdIndex() {
+        FlightQueryBuilder.SqlQuery page = FlightQueryBuilder.page(
+                null,
+                FlightSort.DEPARTURE,
+                false,
+                new FlightSort.Cursor(FROM, 42L),
+                EnumSet.allOf(FlightColumn.class),
+                51
+        );
+
+        assertThat(explain(page)).contains("idx_flight_departure_id");
+    }
+
+    private String explain(FlightQueryBuilder.SqlQuery query) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + query.sql(), String.class, query.params()));
+    }
+
+}
@@ -0,0 +1,196 @@
+package io.github.bagdad.flightmanagement.service;
+
+import io.github.bagdad.flightmanagement.TestDatabase;
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.github.bagdad.flightmanagement.repository.SeatJournalRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs against {@link TestDatabase}, so the locks and rollbacks the ledger relies on are the real ones.
+ */
+@SpringBootTest
+class SeatLedgerTests {
+
+    private static final int SEATS = 100;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        TestDatabase.register(registry);
+    }
+
+    @Autowired
+    private FlightRepository flightRepository;
+
+    @Autowired
+    private SeatJournalRepository journalRepository;
+
+    @Autowired
+    private CatalogueVersion catalogueVersion;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final List<SeatLedger> ledgers = new ArrayList<>();
+
+    private Long flightId;
+
+    @BeforeEach
+    void createFlight() {
+        flightId = jdbcTemplate.queryForObject("""
+            INSERT INTO flights (number, from_city, to_city, departure, arrival, passenger_count, ticket_price)
+            VALUES ('LEDGER1', 'Moscow', 'Kazan', now() + interval '1 day', now() + interval '1 day 2 hours', ?, 100.00)
+            RETURNING id
+        """, Long.class, SEATS);
+    }
+
+    @AfterEach
+    void deleteFlight() {
+        ledgers.forEach(SeatLedger::release);
+        jdbcTemplate.update("DELETE FROM seat_journal WHERE flight_id = ?", flightId);
+        jdbcTemplate.update("DELETE FROM flights WHERE id = ?", flightId);
+    }
+
+    @Test
+    void concurrentReservesNeverOversell() throws Exception {
+        SeatLedger ledger = startLedger();
+        int clients = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < clients; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status -> ledger.reserveSeats(flightId, 3).isPresent());
+                }));
+            }
+
+            start.countDown();
+        }
+
+        int reserved = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                reserved++;
+            }
+        }
+
+        assertThat(reserved).isEqualTo(SEATS / 3);
+        assertThat(ledger.reserveSeats(flightId, 2)).isEmpty();
+
+        journalRepository.flush(LocalDateTime.now());
+        assertThat(passengerCount()).isEqualTo(SEATS - 3 * reserved);
+    }
+
+    @Test
+    void rollbackRestoresCounter() {
+        SeatLedger ledger = startLedger();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertThat(ledger.reserveSeats(flightId, 10)).contains(SEATS - 10);
+            status.setRollbackOnly();
+        });
+
+        assertThat(journalEntries()).isZero();
+        assertThat(transactionTemplate.execute(status -> ledger.reserveSeats(flightId, SEATS))).contains(0);
+    }
+
+    @Test
+    void recoverAppliesUnflushedJournalOnce() {
+        SeatLedger crashed = startLedger();
+
+        transactionTemplate.executeWithoutResult(status -> crashed.reserveSeats(flightId, 7));
+        transactionTemplate.executeWithoutResult(status -> crashed.releaseSeats(flightId, 2));
+        transactionTemplate.executeWithoutResult(status -> crashed.reserveSeats(flightId, 20));
+
+        assertThat(journalEntries()).isEqualTo(3);
+        assertThat(passengerCount()).isEqualTo(SEATS);
+
+        // A new instance on the same database, as after a crash before the first flush.
+        crashed.release();
+        SeatLedger recovered = startLedger();
+        int expected = SEATS - 7 + 2 - 20;
+
+        assertThat(journalEntries()).isZero();
+        assertThat(passengerCount()).isEqualTo(expected);
+
+        recovered.release();
+        SeatLedger restarted = startLedger();
+        assertThat(passengerCount()).isEqualTo(expected);
+
+        Optional<Integer> tooMany = transactionTemplate.execute(status -> restarted.reserveSeats(flightId, expected + 1));
+        Optional<Integer> all = transactionTemplate.execute(status -> restarted.reserveSeats(flightId, expected));
+
+        assertThat(tooMany).isEmpty();
+        assertThat(all).contains(0);
+    }
+
+    @Test
+    void secondInstanceRefusesToStart() {
+        SeatLedger owner = startLedger();
+
+        assertThatThrownBy(this::startLedger).isInstanceOf(IllegalStateException.class);
+
+        owner.release();
+        SeatLedger successor = startLedger();
+
+        assertThat(transactionTemplate.execute(status -> successor.reserveSeats(flightId, SEATS))).contains(0);
+    }
+
+    private SeatLedger startLedger() {
+        SeatLedger ledger = new SeatLedger(
+                flightRepository,
+                journalRepository,
+                dataSource,
+                catalogueVersion,
+                new SimpleMeterRegistry(),
+                Set.of(flightId),
+                Duration.ofHours(1),
+                Integer.MAX_VALUE
+        );
+        ledgers.add(ledger);
+        ledger.recover();
+
+        return ledger;
+    }
+
+    private int passengerCount() {
+        return jdbcTemplate.queryForObject("SELECT passenger_count FROM flights WHERE id = ?", Integer.class, flightId);
+    }
+
+    private int journalEntries() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM seat_journal WHERE flight_id = ?", Integer.class, flightId);
+    }
+
+}
@@ -0,0 +1,81 @@
+package io.github.bagdad.models.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.github.bagdad.models.datasource.ReadYourWritesFilter;
+import io.github.bagdad.models.datasource.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * With {@code datasource.replicas.enabled}, connections of read-only transactions come from
+ * {@link ReplicaRoutingDataSource} and all others from spring.datasource. The proxy hands out a
+ * connection only once the transaction's read-only flag is known, so whatever is not marked
+ * {@code @Transactional(readOnly = true)} stays on the primary. The mark goes on service methods,
+ * like every other transaction boundary; repositories join whatever the caller started. Imported
+ * by each service.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "datasource.replicas", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaDataSource(
+            HikariDataSource primaryDataSource,
+            DataSourceProperties properties,
+            ReplicaProperties replicas,
+            MeterRegistry registry
+    ) {
+        Map<String, DataSource> targets = new LinkedHashMap<>();
+
+        for (int i = 0; i < replicas.getUrls().size(); i++) {
+            HikariDataSource replica = new HikariDataSource();
+
+            replica.setPoolName(primaryDataSource.getPoolName() + "-replica-" + i);
+            replica.setJdbcUrl(replicas.getUrls().get(i));
+            replica.setUsername(replicas.getUsername() != null ? replicas.getUsername() : properties.determineUsername());
+            replica.setPassword(replicas.getPassword() != null ? replicas.getPassword() : properties.determinePassword());
+            replica.setMaximumPoolSize(replicas.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            replica.setMetricRegistry(registry);
+
+            targets.put(replica.getPoolName(), replica);
+        }
+
+        return new ReplicaRoutingDataSource(primaryDataSource, targets, replicas.getMaxLag(), registry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaProperties replicas) {
+        return new ReadYourWritesFilter(replicas.getStickyFor());
+    }
+
+}
@@ -0,0 +1,31 @@
+package io.github.bagdad.models.config;
+
+import io.github.bagdad.models.messaging.ConfirmingPublisher;
+import io.github.bagdad.models.messaging.EventSender;
+import io.github.bagdad.models.messaging.IdempotentExecutor;
+import io.github.bagdad.models.messaging.ListenerMetrics;
+import io.github.bagdad.models.messaging.OutboxRelay;
+import io.github.bagdad.models.repository.OutboxRepository;
+import io.github.bagdad.models.repository.ProcessedEventRepository;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * Publisher confirms, the outbox and idempotent consumption, imported by the RabbitConfig of each
+ * service. The service supplies the RabbitTemplate, whose exchange events are sent to, and the
+ * outbox and processed_events tables in its own migrations.
+ */
+@Configuration
+@EnableConfigurationProperties(MessagingProperties.class)
+@Import({
+        ConfirmingPublisher.class,
+        EventSender.class,
+        OutboxRelay.class,
+        OutboxRepository.class,
+        IdempotentExecutor.class,
+        ProcessedEventRepository.class,
+        ListenerMetrics.class
+})
+public class MessagingConfig {
+}
@@ -0,0 +1,163 @@
+package io.github.bagdad.models.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings shared by the messaging infrastructure of all services. A service binds settings of its
+ * own queues under the same prefix in a properties class of its own.
+ */
+@ConfigurationProperties(prefix = "messaging")
+@Getter
+@Setter
+public class MessagingProperties {
+
+    /**
+     * Run listener consumers on virtual threads.
+     */
+    private boolean virtualThreads = false;
+
+    private Listener defaults = new Listener(1, 1, 250);
+
+    /**
+     * Per-queue overrides keyed by queue name.
+     */
+    private Map<String, Listener> listeners = new HashMap<>();
+
+    /**
+     * Encoding of outgoing events. Listeners accept both.
+     */
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    private Outbox outbox = new Outbox();
+
+    private Publisher publisher = new Publisher();
+
+    private Idempotency idempotency = new Idempotency();
+
+    public int concurrencyFor(String queue) {
+        Listener listener = listeners.get(queue);
+
+        return listener != null && listener.getConcurrency() != null
+                ? listener.getConcurrency()
+                : defaults.getConcurrency();
+    }
+
+    public int maxConcurrencyFor(String queue) {
+        Listener listener = listeners.get(queue);
+
+        int maxConcurrency = listener != null && listener.getMaxConcurrency() != null
+                ? listener.getMaxConcurrency()
+                : defaults.getMaxConcurrency();
+
+        return Math.max(maxConcurrency, concurrencyFor(queue));
+    }
+
+    public int prefetchFor(String queue) {
+        Listener listener = listeners.get(queue);
+
+        return listener != null && listener.getPrefetch() != null
+                ? listener.getPrefetch()
+                : defaults.getPrefetch();
+    }
+
+    public enum WireFormat {
+        JSON,
+        BINARY
+    }
+
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Getter
+    @Setter
+    public static class Listener {
+
+        private Integer concurrency;
+
+        private Integer maxConcurrency;
+
+        private Integer prefetch;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Outbox {
+
+        /**
+         * Write events to the outbox table in the caller's transaction instead of sending them directly.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of messages the relay publishes and confirms at once.
+         */
+        private int batchSize = 500;
+
+        /**
+         * How long the relay waits for broker confirms of one batch.
+         */
+        private Duration confirmTimeout = Duration.ofSeconds(5);
+
+    }
+
+    @Getter
+    @Setter
+    public static class Publisher {
+
+        /**
+         * Maximum number of sent but not yet confirmed messages.
+         */
+        private int maxInFlight = 1000;
+
+        /**
+         * How long a send waits for a free in-flight slot before failing, and how long a transaction
+         * waits at commit for the confirms of its direct sends.
+         */
+        private Duration publishTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Routing keys the outbox relay packs into batch messages.
+         */
+        private List<String> batchedRoutingKeys = new ArrayList<>();
+
+        /**
+         * Maximum number of messages in one batch message.
+         */
+        private int batchSize = 100;
+
+        /**
+         * Maximum size in bytes of one batch message.
+         */
+        private int batchBufferLimit = 64 * 1024;
+
+    }
+
+    @Getter
+    @Setter
+    public static class Idempotency {
+
+        /**
+         * Number of recently processed event ids kept in memory, so most duplicates are skipped
+         * without reading processed_events.
+         */
+        private int windowSize = 100_000;
+
+        /**
+         * How long processed event ids are kept in processed_events. Must exceed the longest time a
+         * message can wait for redelivery.
+         */
+        private Duration retention = Duration.ofDays(7);
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package io.github.bagdad.models.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties(prefix = "datasource.replicas")
+@Getter
+@Setter
+public class ReplicaProperties {
+
+    /**
+     * Route read-only transactions to the replicas. Off keeps every query on spring.datasource.
+     */
+    private boolean enabled = false;
+
+    /**
+     * JDBC urls of streaming replicas of spring.datasource.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * Credentials for the replicas, spring.datasource's when not set.
+     */
+    private String username;
+
+    private String password;
+
+    private int maximumPoolSize = 10;
+
+    /**
+     * Replicas further behind the primary than this are skipped until they catch up.
+     */
+    private Duration maxLag = Duration.ofSeconds(2);
+
+    /**
+     * How often the replay lag of each replica is checked.
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(1);
+
+    /**
+     * How long a client reads from the primary after sending a mutation.
+     */
+    private Duration stickyFor = Duration.ofSeconds(5);
+
+}
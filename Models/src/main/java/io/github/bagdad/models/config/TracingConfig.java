@@ -0,0 +1,22 @@
+package io.github.bagdad.models.config;
+
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spans go to the OTLP collector at {@code management.opentelemetry.tracing.export.otlp.endpoint}
+ * when it is set, and to the application log with {@code tracing.log-exporter.enabled}.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.log-exporter", name = "enabled", havingValue = "true")
+    public SpanExporter loggingSpanExporter() {
+        return LoggingSpanExporter.create();
+    }
+
+}
@@ -0,0 +1,88 @@
+package io.github.bagdad.models.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Keeps a client on the primary for {@code datasource.replicas.sticky-for} after it sent a
+ * mutation, so it reads its own writes while the replicas catch up. The deadline travels in a
+ * cookie and therefore holds across instances; cross-origin clients must send credentials.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "primary-until";
+
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final Duration stickyFor;
+
+    public ReadYourWritesFilter(Duration stickyFor) {
+        this.stickyFor = stickyFor;
+    }
+
+    /**
+     * Whether reads of the current request must go to the primary.
+     */
+    public static boolean isActive() {
+        return PRIMARY.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean mutation = !SAFE_METHODS.contains(request.getMethod());
+
+        // Set up front, the response may be committed by the time the handler returns.
+        if (mutation) {
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickyFor.toMillis()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge(Math.toIntExact(Math.max(1, stickyFor.toSeconds())));
+            response.addCookie(cookie);
+        }
+
+        if (!mutation && stickyUntil(request) <= now) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            chain.doFilter(request, response);
+        }
+        finally {
+            PRIMARY.remove();
+        }
+    }
+
+    private static long stickyUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return 0;
+        }
+
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                }
+                catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+}
@@ -0,0 +1,131 @@
+package io.github.bagdad.models.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Source of read-only connections: the replicas within {@code datasource.replicas.max-lag} of the
+ * primary, round robin, or the primary itself when none is or the request must read its own
+ * writes (see {@link ReadYourWritesFilter}).
+ * <p>
+ * Replicas start out skipped and are admitted by the first lag check, so a replica that is down
+ * or far behind at startup is never used.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+
+    // A standby that replayed everything it received is current, however old its last transaction.
+    private static final String REPLAY_LAG_SQL = """
+        SELECT CASE
+            WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+            ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000
+        END
+    """;
+
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration maxLag, MeterRegistry registry) {
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), new JdbcTemplate(replica.getValue())))
+                .toList();
+        this.maxLagMillis = maxLag.toMillis();
+
+        for (Replica replica : this.replicas) {
+            Gauge.builder("datasource.replica.lag", replica, Replica::lagMillis)
+                    .description("Replay lag of the replica behind the primary, negative when unreachable")
+                    .baseUnit("milliseconds")
+                    .tag("replica", replica.name)
+                    .register(registry);
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (ReadYourWritesFilter.isActive()) {
+            return PRIMARY;
+        }
+
+        int start = next.getAndIncrement();
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+
+            if (replica.isWithin(maxLagMillis)) {
+                return replica.name;
+            }
+        }
+
+        return PRIMARY;
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.lag-check-interval:1s}")
+    public void checkLag() {
+        for (Replica replica : replicas) {
+            boolean wasWithin = replica.isWithin(maxLagMillis);
+            replica.check();
+            boolean within = replica.isWithin(maxLagMillis);
+
+            if (wasWithin && !within) {
+                log.warn("Replica {} is {}, reads go elsewhere until it catches up", replica.name,
+                        replica.lagMillis < 0 ? "unreachable" : Math.round(replica.lagMillis) + " ms behind");
+            }
+            else if (!wasWithin && within) {
+                log.info("Replica {} is serving reads", replica.name);
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+
+        private volatile double lagMillis = -1;
+
+        Replica(String name, JdbcTemplate jdbcTemplate) {
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        void check() {
+            try {
+                Double lag = jdbcTemplate.queryForObject(REPLAY_LAG_SQL, Double.class);
+                lagMillis = lag == null ? -1 : lag;
+            }
+            catch (RuntimeException e) {
+                lagMillis = -1;
+            }
+        }
+
+        boolean isWithin(long maxLagMillis) {
+            return lagMillis >= 0 && lagMillis <= maxLagMillis;
+        }
+
+        double lagMillis() {
+            return lagMillis;
+        }
+
+    }
+
+}
@@ -0,0 +1,19 @@
+package io.github.bagdad.models.events;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Base of all events. The id is drawn when the event is created and travels with it, so a
+ * consumer recognises a redelivered or republished event. Events decoded from producers that
+ * predate the id carry a fresh one or none, and are not deduplicated.
+ */
+@Getter
+@Setter
+public abstract class AbstractEvent {
+
+    private UUID eventId = UUID.randomUUID();
+
+}
@@ -0,0 +1,27 @@
+package io.github.bagdad.models.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Bookings of one flight cancelled by a single batch request, with their passengers summed up.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class BookingBatchCancelled extends AbstractEvent {
+
+    private Long flightId;
+
+    private List<Long> bookingIds;
+
+    private Integer passengerCount;
+
+}
@@ -0,0 +1,28 @@
+package io.github.bagdad.models.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Bookings of one flight created by a single batch request. {@code passengerCounts} is parallel to
+ * {@code bookingIds}, in the order the bookings were submitted.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class BookingBatchCreated extends AbstractEvent {
+
+    private Long flightId;
+
+    private List<Long> bookingIds;
+
+    private List<Integer> passengerCounts;
+
+}
@@ -2,12 +2,16 @@ package io.github.bagdad.models.events;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Data
-public class BookingCancelled {
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class BookingCancelled extends AbstractEvent {
 
     private Long flightId;
 
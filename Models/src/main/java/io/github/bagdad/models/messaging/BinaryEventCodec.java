@@ -0,0 +1,263 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.events.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of the events in {@link io.github.bagdad.models.events}.
+ * <p>
+ * Layout: format version, type id, a presence byte with one bit per field, the event id as 16
+ * bytes (since version 2, all zeros when absent), then every present field as a zigzag varint, so
+ * a BookingCreated with realistic ids takes about 28 bytes. Lists are a varint count followed by
+ * the differences between neighbours, so the consecutive ids of a booking batch take one byte each.
+ */
+public final class BinaryEventCodec {
+
+    public static final byte VERSION = 2;
+
+    private static final int EVENT_ID_BYTES = 16;
+
+    private static final List<EventSchema<?>> SCHEMAS = List.of(
+            EventSchema.of(1, BookingCreated.class, BookingCreated::new)
+                    .longField(BookingCreated::getBookingId, BookingCreated::setBookingId)
+                    .longField(BookingCreated::getFlightId, BookingCreated::setFlightId)
+                    .intField(BookingCreated::getPassengerCount, BookingCreated::setPassengerCount)
+                    .build(),
+            EventSchema.of(2, BookingCancelled.class, BookingCancelled::new)
+                    .longField(BookingCancelled::getFlightId, BookingCancelled::setFlightId)
+                    .intField(BookingCancelled::getPassengerCount, BookingCancelled::setPassengerCount)
+                    .build(),
+            EventSchema.of(3, BookingUpdated.class, BookingUpdated::new)
+                    .longField(BookingUpdated::getBookingId, BookingUpdated::setBookingId)
+                    .longField(BookingUpdated::getFlightId, BookingUpdated::setFlightId)
+                    .intField(BookingUpdated::getCurrentPassengerCount, BookingUpdated::setCurrentPassengerCount)
+                    .intField(BookingUpdated::getNewPassengerCount, BookingUpdated::setNewPassengerCount)
+                    .build(),
+            EventSchema.of(4, BookingConfirmed.class, BookingConfirmed::new)
+                    .longField(BookingConfirmed::getBookingId, BookingConfirmed::setBookingId)
+                    .build(),
+            EventSchema.of(5, BookingRejected.class, BookingRejected::new)
+                    .longField(BookingRejected::getBookingId, BookingRejected::setBookingId)
+                    .build(),
+            EventSchema.of(6, BookingUpdateConfirmed.class, BookingUpdateConfirmed::new)
+                    .longField(BookingUpdateConfirmed::getBookingId, BookingUpdateConfirmed::setBookingId)
+                    .longField(BookingUpdateConfirmed::getFlightId, BookingUpdateConfirmed::setFlightId)
+                    .build(),
+            EventSchema.of(7, BookingUpdateRejected.class, BookingUpdateRejected::new)
+                    .longField(BookingUpdateRejected::getBookingId, BookingUpdateRejected::setBookingId)
+                    .longField(BookingUpdateRejected::getFlightId, BookingUpdateRejected::setFlightId)
+                    .intField(BookingUpdateRejected::getCurrentPassengerCount, BookingUpdateRejected::setCurrentPassengerCount)
+                    .intField(BookingUpdateRejected::getNewPassengerCount, BookingUpdateRejected::setNewPassengerCount)
+                    .build(),
+            EventSchema.of(8, FlightCancelled.class, FlightCancelled::new)
+                    .longField(FlightCancelled::getFlightId, FlightCancelled::setFlightId)
+                    .build(),
+            EventSchema.of(9, FlightsCancelled.class, FlightsCancelled::new)
+                    .longListField(FlightsCancelled::getFlightIds, FlightsCancelled::setFlightIds)
+                    .build(),
+            EventSchema.of(10, BookingBatchCreated.class, BookingBatchCreated::new)
+                    .longField(BookingBatchCreated::getFlightId, BookingBatchCreated::setFlightId)
+                    .longListField(BookingBatchCreated::getBookingIds, BookingBatchCreated::setBookingIds)
+                    .intListField(BookingBatchCreated::getPassengerCounts, BookingBatchCreated::setPassengerCounts)
+                    .build(),
+            EventSchema.of(11, BookingBatchCancelled.class, BookingBatchCancelled::new)
+                    .longField(BookingBatchCancelled::getFlightId, BookingBatchCancelled::setFlightId)
+                    .longListField(BookingBatchCancelled::getBookingIds, BookingBatchCancelled::setBookingIds)
+                    .intField(BookingBatchCancelled::getPassengerCount, BookingBatchCancelled::setPassengerCount)
+                    .build()
+    );
+
+    private static final Map<Class<?>, EventSchema<?>> BY_TYPE = new HashMap<>();
+    private static final EventSchema<?>[] BY_ID = new EventSchema<?>[256];
+
+    static {
+        for (EventSchema<?> schema : SCHEMAS) {
+            BY_TYPE.put(schema.type(), schema);
+            BY_ID[schema.typeId() & 0xFF] = schema;
+        }
+    }
+
+    private BinaryEventCodec() {
+    }
+
+    public static boolean supports(Class<?> type) {
+        return BY_TYPE.containsKey(type);
+    }
+
+    public static byte[] encode(Object event) {
+        @SuppressWarnings("unchecked")
+        EventSchema<AbstractEvent> schema = (EventSchema<AbstractEvent>) BY_TYPE.get(event.getClass());
+
+        if (schema == null) {
+            throw new IllegalArgumentException("No binary schema for " + event.getClass().getName());
+        }
+
+        AbstractEvent typed = (AbstractEvent) event;
+        List<EventSchema.Field<AbstractEvent>> fields = schema.fields();
+        Object[] values = new Object[fields.size()];
+        int presence = 0;
+
+        for (int i = 0; i < fields.size(); i++) {
+            values[i] = fields.get(i).getter().apply(typed);
+
+            if (values[i] != null) {
+                presence |= 1 << i;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(3 + EVENT_ID_BYTES + fields.size() * 4);
+        out.write(VERSION);
+        out.write(schema.typeId());
+        out.write(presence);
+        writeEventId(out, typed.getEventId());
+
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+
+            if (fields.get(i).list()) {
+                writeLongList(out, (List<?>) values[i]);
+            }
+            else {
+                writeVarLong(out, ((Number) values[i]).longValue());
+            }
+        }
+
+        return out.toByteArray();
+    }
+
+    public static Object decode(byte[] body) {
+        ByteBuffer in = ByteBuffer.wrap(body);
+
+        if (in.remaining() < 3) {
+            throw new IllegalArgumentException("Binary event is truncated");
+        }
+
+        byte version = in.get();
+
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported binary event version " + version);
+        }
+
+        int typeId = in.get() & 0xFF;
+
+        @SuppressWarnings("unchecked")
+        EventSchema<AbstractEvent> schema = (EventSchema<AbstractEvent>) BY_ID[typeId];
+
+        if (schema == null) {
+            throw new IllegalArgumentException("Unknown binary event type " + typeId);
+        }
+
+        int presence = in.get() & 0xFF;
+        AbstractEvent event = schema.factory().get();
+        List<EventSchema.Field<AbstractEvent>> fields = schema.fields();
+
+        // Version 1 had no event id, such events are not deduplicated.
+        event.setEventId(version >= 2 ? readEventId(in) : null);
+
+        for (int i = 0; i < EventSchema.MAX_FIELDS; i++) {
+            if ((presence & (1 << i)) == 0) {
+                continue;
+            }
+
+            // Fields appended by a newer writer are read and dropped.
+            if (i >= fields.size()) {
+                readVarLong(in);
+            }
+            else if (fields.get(i).list()) {
+                fields.get(i).setter().accept(event, readLongList(in));
+            }
+            else {
+                fields.get(i).setter().accept(event, readVarLong(in));
+            }
+        }
+
+        return event;
+    }
+
+    private static void writeEventId(ByteArrayOutputStream out, UUID eventId) {
+        long most = eventId == null ? 0 : eventId.getMostSignificantBits();
+        long least = eventId == null ? 0 : eventId.getLeastSignificantBits();
+
+        out.writeBytes(ByteBuffer.allocate(EVENT_ID_BYTES).putLong(most).putLong(least).array());
+    }
+
+    private static UUID readEventId(ByteBuffer in) {
+        if (in.remaining() < EVENT_ID_BYTES) {
+            throw new IllegalArgumentException("Binary event is truncated");
+        }
+
+        long most = in.getLong();
+        long least = in.getLong();
+
+        return most == 0 && least == 0 ? null : new UUID(most, least);
+    }
+
+    private static void writeLongList(ByteArrayOutputStream out, List<?> values) {
+        writeVarLong(out, values.size());
+
+        long previous = 0;
+        for (Object value : values) {
+            long current = ((Number) value).longValue();
+            writeVarLong(out, current - previous);
+            previous = current;
+        }
+    }
+
+    private static List<Long> readLongList(ByteBuffer in) {
+        long size = readVarLong(in);
+
+        if (size < 0 || size > in.remaining()) {
+            throw new IllegalArgumentException("Malformed list length in binary event");
+        }
+
+        List<Long> values = new ArrayList<>((int) size);
+
+        long previous = 0;
+        for (long i = 0; i < size; i++) {
+            previous += readVarLong(in);
+            values.add(previous);
+        }
+
+        return values;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            out.write((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+
+        out.write((int) zigzag);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IllegalArgumentException("Binary event is truncated");
+            }
+
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IllegalArgumentException("Malformed varint in binary event");
+    }
+
+}
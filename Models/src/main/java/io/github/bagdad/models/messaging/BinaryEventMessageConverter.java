@@ -0,0 +1,42 @@
+package io.github.bagdad.models.messaging;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * {@link MessageConverter} for {@link BinaryEventCodec}. Messages carry {@link #CONTENT_TYPE}, so a
+ * {@code ContentTypeDelegatingMessageConverter} on the consumer can accept both this format and
+ * JSON while producers switch over.
+ */
+public class BinaryEventMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/x-airline-event";
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        try {
+            byte[] body = BinaryEventCodec.encode(object);
+
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+
+            return new Message(body, messageProperties);
+        }
+        catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Failed to encode " + object.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        try {
+            return BinaryEventCodec.decode(message.getBody());
+        }
+        catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Failed to decode binary event", e);
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.config.MessagingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes with correlated publisher confirms without waiting for them. At most
+ * {@code messaging.publisher.max-in-flight} messages may be unconfirmed; further sends block for up
+ * to {@code messaging.publisher.publish-timeout}, which slows producers down to the broker's pace.
+ */
+@Component
+public class ConfirmingPublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Duration publishTimeout;
+
+    private final Counter acked;
+    private final Counter nacked;
+    private final Timer confirmLatency;
+
+    public ConfirmingPublisher(RabbitTemplate rabbitTemplate, MessagingProperties properties, MeterRegistry registry) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.maxInFlight = properties.getPublisher().getMaxInFlight();
+        this.inFlight = new Semaphore(maxInFlight);
+        this.publishTimeout = properties.getPublisher().getPublishTimeout();
+
+        this.acked = Counter.builder("messaging.publish")
+                .tag("result", "ack")
+                .register(registry);
+        this.nacked = Counter.builder("messaging.publish")
+                .tag("result", "nack")
+                .register(registry);
+        this.confirmLatency = Timer.builder("messaging.publish.confirm.latency")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        Gauge.builder("messaging.publish.in-flight", this, ConfirmingPublisher::inFlight)
+                .register(registry);
+    }
+
+    /**
+     * Sends the message and returns a future completed by the broker's confirm; it fails on a nack
+     * or a lost channel.
+     */
+    public CompletableFuture<Void> send(String exchange, String routingKey, Message message) {
+        acquire();
+
+        long startedAt = System.nanoTime();
+        CorrelationData correlationData = new CorrelationData();
+
+        try {
+            rabbitTemplate.send(exchange, routingKey, message, correlationData);
+        }
+        catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+
+        return correlationData.getFuture()
+                .whenComplete((confirm, error) -> {
+                    inFlight.release();
+                    confirmLatency.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                })
+                .thenAccept(confirm -> {
+                    if (!confirm.ack()) {
+                        nacked.increment();
+                        throw new AmqpException("Broker did not confirm message to " + routingKey + ": " + confirm.reason());
+                    }
+
+                    acked.increment();
+                });
+    }
+
+    private void acquire() {
+        try {
+            if (!inFlight.tryAcquire(publishTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new AmqpException("Too many unconfirmed messages, gave up after " + publishTimeout);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException(e);
+        }
+    }
+
+    private double inFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+}
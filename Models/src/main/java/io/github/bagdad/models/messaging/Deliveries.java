@@ -0,0 +1,54 @@
+package io.github.bagdad.models.messaging;
+
+import com.rabbitmq.client.Channel;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+
+/**
+ * Negative acknowledgement of failed deliveries. Failures that may pass on their own (lost
+ * connections, lock and serialization conflicts, timeouts) requeue the message, which is safe
+ * because handlers go through {@link IdempotentExecutor}; anything else is rejected for good.
+ */
+public final class Deliveries {
+
+    private Deliveries() {
+    }
+
+    /**
+     * Nacks the delivery and returns the exception for the listener to throw.
+     */
+    public static AmqpException nack(Channel channel, long deliveryTag, boolean multiple, Exception e) throws IOException {
+        boolean requeue = isTransient(e);
+
+        channel.basicNack(deliveryTag, multiple, requeue);
+
+        return requeue
+                ? new ImmediateRequeueAmqpException(e)
+                : new AmqpRejectAndDontRequeueException(e);
+    }
+
+    public static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof AmqpConnectException
+                    || cause instanceof AmqpTimeoutException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
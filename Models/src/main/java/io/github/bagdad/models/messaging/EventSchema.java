@@ -0,0 +1,75 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.events.AbstractEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Binary layout of one event type: its type id and its fields in wire order. Fields may only be
+ * appended, and appended fields must be scalars so that readers that know fewer fields can skip
+ * them.
+ */
+record EventSchema<T extends AbstractEvent>(byte typeId, Class<T> type, Supplier<T> factory, List<Field<T>> fields) {
+
+    static final int MAX_FIELDS = 8;
+
+    static <T extends AbstractEvent> Builder<T> of(int typeId, Class<T> type, Supplier<T> factory) {
+        return new Builder<>((byte) typeId, type, factory);
+    }
+
+    record Field<T>(Function<T, Object> getter, BiConsumer<T, Object> setter, boolean list) {
+
+    }
+
+    static final class Builder<T extends AbstractEvent> {
+
+        private final byte typeId;
+        private final Class<T> type;
+        private final Supplier<T> factory;
+        private final List<Field<T>> fields = new ArrayList<>();
+
+        private Builder(byte typeId, Class<T> type, Supplier<T> factory) {
+            this.typeId = typeId;
+            this.type = type;
+            this.factory = factory;
+        }
+
+        Builder<T> longField(Function<T, Long> getter, BiConsumer<T, Long> setter) {
+            fields.add(new Field<>(getter::apply, (event, value) -> setter.accept(event, (Long) value), false));
+            return this;
+        }
+
+        Builder<T> intField(Function<T, Integer> getter, BiConsumer<T, Integer> setter) {
+            fields.add(new Field<>(getter::apply, (event, value) -> setter.accept(event, Math.toIntExact((Long) value)), false));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        Builder<T> longListField(Function<T, List<Long>> getter, BiConsumer<T, List<Long>> setter) {
+            fields.add(new Field<>(getter::apply, (event, value) -> setter.accept(event, (List<Long>) value), true));
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        Builder<T> intListField(Function<T, List<Integer>> getter, BiConsumer<T, List<Integer>> setter) {
+            fields.add(new Field<>(getter::apply, (event, value) -> setter.accept(event, ((List<Long>) value).stream()
+                    .map(Math::toIntExact)
+                    .toList()), true));
+            return this;
+        }
+
+        EventSchema<T> build() {
+            if (fields.size() > MAX_FIELDS) {
+                throw new IllegalStateException("At most " + MAX_FIELDS + " fields fit into the presence byte");
+            }
+
+            return new EventSchema<>(typeId, type, factory, List.copyOf(fields));
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.config.MessagingProperties;
+import io.github.bagdad.models.repository.OutboxRepository;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends events to the exchange of the service's RabbitTemplate. With {@code messaging.outbox.enabled} the converted message
+ * is written to the outbox in the caller's transaction and published later by {@link OutboxRelay},
+ * otherwise it goes straight to the broker through {@link ConfirmingPublisher}. Either way callers must run in a transaction.
+ * <p>
+ * Direct sends are confirmed before the caller's transaction commits: a nack, a lost channel or
+ * no confirm within {@code messaging.publisher.publish-timeout} fails the commit, so the work is
+ * rolled back or redelivered instead of its event being lost.
+ * <p>
+ * Outbox rows carry the caller's trace context in their headers, so {@link OutboxRelay} can
+ * continue the trace.
+ */
+@Slf4j
+@Component
+@Transactional(propagation = Propagation.MANDATORY)
+public class EventSender {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final String exchange;
+    private final ConfirmingPublisher publisher;
+    private final OutboxRepository outboxRepository;
+    private final Tracer tracer;
+    private final Propagator propagator;
+    private final boolean outboxEnabled;
+    private final Duration confirmTimeout;
+
+    public EventSender(
+            RabbitTemplate rabbitTemplate,
+            ConfirmingPublisher publisher,
+            OutboxRepository outboxRepository,
+            Tracer tracer,
+            Propagator propagator,
+            MessagingProperties properties
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.exchange = rabbitTemplate.getExchange();
+        this.publisher = publisher;
+        this.outboxRepository = outboxRepository;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.outboxEnabled = properties.getOutbox().isEnabled();
+        this.confirmTimeout = properties.getPublisher().getPublishTimeout();
+    }
+
+    public void send(String routingKey, Object event) {
+        send(routingKey, event, message -> message);
+    }
+
+    public void send(String routingKey, Object event, MessagePostProcessor postProcessor) {
+        if (!outboxEnabled) {
+            confirmBeforeCommit(routingKey, event, publisher.send(exchange, routingKey, toMessage(event, postProcessor)));
+            return;
+        }
+
+        outboxRepository.saveAll(List.of(toOutboxMessage(routingKey, event, postProcessor)));
+    }
+
+    public void sendAll(String routingKey, List<?> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        if (!outboxEnabled) {
+            for (Object event : events) {
+                confirmBeforeCommit(routingKey, event, publisher.send(exchange, routingKey, toMessage(event, message -> message)));
+            }
+            return;
+        }
+
+        outboxRepository.saveAll(events.stream()
+                .map(event -> toOutboxMessage(routingKey, event, message -> message))
+                .toList());
+    }
+
+    private void confirmBeforeCommit(String routingKey, Object event, CompletableFuture<Void> confirm) {
+        String eventType = event.getClass().getSimpleName();
+
+        confirm.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("{} to {} was not confirmed by the broker", eventType, routingKey, error);
+            }
+        });
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                try {
+                    confirm.get(confirmTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AmqpException(e);
+                }
+                catch (ExecutionException e) {
+                    throw new AmqpException(eventType + " to " + routingKey + " was not confirmed", e.getCause());
+                }
+                catch (TimeoutException e) {
+                    throw new AmqpTimeoutException(eventType + " to " + routingKey + " was not confirmed within " + confirmTimeout);
+                }
+            }
+        });
+    }
+
+    private OutboxMessage toOutboxMessage(String routingKey, Object event, MessagePostProcessor postProcessor) {
+        Message message = toMessage(event, postProcessor);
+
+        MessageProperties properties = message.getMessageProperties();
+        Map<String, String> headers = new LinkedHashMap<>();
+        properties.getHeaders().forEach((name, value) -> headers.put(name, String.valueOf(value)));
+
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            propagator.inject(span.context(), headers, Map::put);
+        }
+
+        return new OutboxMessage(
+                null,
+                exchange,
+                routingKey,
+                properties.getContentType(),
+                headers,
+                message.getBody(),
+                null
+        );
+    }
+
+    private Message toMessage(Object event, MessagePostProcessor postProcessor) {
+        return postProcessor.postProcessMessage(
+                rabbitTemplate.getMessageConverter().toMessage(event, new MessageProperties())
+        );
+    }
+
+}
@@ -0,0 +1,146 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.config.MessagingProperties;
+import io.github.bagdad.models.events.AbstractEvent;
+import io.github.bagdad.models.repository.ProcessedEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Applies consumed events at most once per event id, which makes redelivery and requeueing safe.
+ * <p>
+ * The id is recorded in processed_events in the same transaction as the event's effect, so a
+ * failed handler leaves no trace and the retry runs again. Ids of the last
+ * {@code messaging.idempotency.window-size} events are also kept in memory, which skips most
+ * duplicates without a round trip. Events without an id are always applied.
+ */
+@Slf4j
+@Component
+public class IdempotentExecutor {
+
+    private final ProcessedEventRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final ListenerMetrics metrics;
+    private final Duration retention;
+
+    private final Map<UUID, Boolean> window;
+
+    public IdempotentExecutor(
+            ProcessedEventRepository repository,
+            TransactionTemplate transactionTemplate,
+            ListenerMetrics metrics,
+            MessagingProperties properties
+    ) {
+        this.repository = repository;
+        this.transactionTemplate = transactionTemplate;
+        this.metrics = metrics;
+        this.retention = properties.getIdempotency().getRetention();
+
+        int windowSize = properties.getIdempotency().getWindowSize();
+        this.window = Collections.synchronizedMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Boolean> eldest) {
+                return size() > windowSize;
+            }
+        });
+    }
+
+    public void execute(String queue, AbstractEvent event, Runnable action) {
+        executeAll(queue, List.of(event), events -> action.run());
+    }
+
+    /**
+     * Runs the action in one transaction with the events not processed before, in their original
+     * order; does nothing if there are none.
+     */
+    public <E extends AbstractEvent> void executeAll(String queue, List<E> events, Consumer<List<E>> action) {
+        List<E> candidates = events.stream()
+                .filter(event -> event.getEventId() == null || !window.containsKey(event.getEventId()))
+                .toList();
+
+        int applied = candidates.isEmpty() ? 0 : transactionTemplate.execute(status -> {
+            List<UUID> eventIds = candidates.stream()
+                    .map(AbstractEvent::getEventId)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .toList();
+
+            Set<UUID> recorded = eventIds.isEmpty() ? Set.of() : repository.markProcessed(eventIds);
+            List<E> fresh = new ArrayList<>(candidates.size());
+
+            for (E event : candidates) {
+                // remove, so an id repeated within the batch is applied once
+                if (event.getEventId() == null || recorded.remove(event.getEventId())) {
+                    fresh.add(event);
+                }
+            }
+
+            if (!fresh.isEmpty()) {
+                action.accept(fresh);
+            }
+
+            afterCommit(() -> eventIds.forEach(eventId -> window.put(eventId, Boolean.TRUE)));
+
+            return fresh.size();
+        });
+
+        if (applied < events.size()) {
+            metrics.duplicates(queue, events.size() - applied);
+        }
+    }
+
+    /**
+     * For work that is idempotent by itself and runs its own transactions: skipped when the event
+     * is known, recorded once the work completed. A failure in between repeats the work.
+     */
+    public void executeThenRecord(String queue, AbstractEvent event, Runnable action) {
+        UUID eventId = event.getEventId();
+
+        if (eventId != null && (window.containsKey(eventId) || repository.isProcessed(eventId))) {
+            window.put(eventId, Boolean.TRUE);
+            metrics.duplicates(queue, 1);
+            return;
+        }
+
+        action.run();
+
+        if (eventId != null) {
+            repository.markProcessed(List.of(eventId));
+            window.put(eventId, Boolean.TRUE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.idempotency.purge-interval:1h}")
+    public void purge() {
+        int purged = repository.deleteOlderThan(retention);
+
+        if (purged > 0) {
+            log.debug("Purged {} processed event ids older than {}", purged, retention);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+}
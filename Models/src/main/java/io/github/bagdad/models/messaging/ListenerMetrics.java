@@ -0,0 +1,37 @@
+package io.github.bagdad.models.messaging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts deliveries the listeners reject, by queue, exception and whether they were requeued, and
+ * duplicate events skipped by {@link IdempotentExecutor}. Handler latency per queue comes
+ * from the listener container observations, as {@code spring.rabbit.listener}.
+ */
+@Component
+public class ListenerMetrics {
+
+    private final MeterRegistry registry;
+
+    public ListenerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void nacked(String queue, Exception e) {
+        Counter.builder("messaging.listener.nack")
+                .tag("queue", queue == null ? "unknown" : queue)
+                .tag("exception", e.getClass().getSimpleName())
+                .tag("requeued", String.valueOf(Deliveries.isTransient(e)))
+                .register(registry)
+                .increment();
+    }
+
+    public void duplicates(String queue, int count) {
+        Counter.builder("messaging.listener.duplicate")
+                .tag("queue", queue == null ? "unknown" : queue)
+                .register(registry)
+                .increment(count);
+    }
+
+}
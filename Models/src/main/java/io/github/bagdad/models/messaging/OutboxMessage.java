@@ -0,0 +1,31 @@
+package io.github.bagdad.models.messaging;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class OutboxMessage {
+
+    private Long id;
+
+    private String exchange;
+
+    private String routingKey;
+
+    private String contentType;
+
+    private Map<String, String> headers;
+
+    private byte[] body;
+
+    private OffsetDateTime createdAt;
+
+}
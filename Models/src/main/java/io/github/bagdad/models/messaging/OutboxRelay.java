@@ -0,0 +1,184 @@
+package io.github.bagdad.models.messaging;
+
+import io.github.bagdad.models.config.MessagingProperties;
+import io.github.bagdad.models.repository.OutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.propagation.Propagator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.batch.MessageBatch;
+import org.springframework.amqp.rabbit.batch.SimpleBatchingStrategy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the outbox in id order. Each batch is locked, published, confirmed by the broker and
+ * deleted in one transaction; a failure leaves the batch for the next run, so delivery is at least
+ * once. A transaction-level advisory lock lets only one instance relay at a time, so the events
+ * of a flight reach its partition in id order however many instances run.
+ * <p>
+ * Messages on {@code messaging.publisher.batched-routing-keys} are packed into Spring AMQP batch
+ * messages, which listener containers split again before delivery.
+ * <p>
+ * {@code messaging.outbox.lag} times each message from its insert to its broker confirm.
+ * <p>
+ * Each message is sent within a span continuing the trace stored in its headers. Batched messages
+ * are sent outside of any trace, the batch format keeps no per-message headers.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "messaging.outbox", name = "enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private final OutboxRepository repository;
+    private final ConfirmingPublisher publisher;
+    private final TransactionTemplate transactionTemplate;
+    private final MessagingProperties.Outbox properties;
+    private final MessagingProperties.Publisher publisherProperties;
+    private final Set<String> batchedRoutingKeys;
+    private final Timer lag;
+    private final Tracer tracer;
+    private final Propagator propagator;
+
+    public OutboxRelay(
+            OutboxRepository repository,
+            ConfirmingPublisher publisher,
+            TransactionTemplate transactionTemplate,
+            MessagingProperties properties,
+            MeterRegistry registry,
+            Tracer tracer,
+            Propagator propagator
+    ) {
+        this.repository = repository;
+        this.publisher = publisher;
+        this.tracer = tracer;
+        this.propagator = propagator;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties.getOutbox();
+        this.publisherProperties = properties.getPublisher();
+        this.batchedRoutingKeys = Set.copyOf(publisherProperties.getBatchedRoutingKeys());
+        this.lag = Timer.builder("messaging.outbox.lag")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${messaging.outbox.poll-interval:50ms}")
+    public void relay() {
+        try {
+            Integer relayed;
+            do {
+                relayed = transactionTemplate.execute(status -> relayBatch());
+            }
+            while (relayed != null && relayed == properties.getBatchSize());
+        }
+        catch (Exception e) {
+            log.error("Error relaying outbox messages", e);
+        }
+    }
+
+    private int relayBatch() {
+        if (!repository.tryLockRelay()) {
+            return 0;
+        }
+
+        List<OutboxMessage> batch = repository.lockBatch(properties.getBatchSize());
+
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        SimpleBatchingStrategy batching = new SimpleBatchingStrategy(
+                publisherProperties.getBatchSize(),
+                publisherProperties.getBatchBufferLimit(),
+                Long.MAX_VALUE
+        );
+        List<CompletableFuture<Void>> confirms = new ArrayList<>(batch.size());
+
+        for (OutboxMessage outboxMessage : batch) {
+            Message message = toMessage(outboxMessage);
+
+            if (batchedRoutingKeys.contains(outboxMessage.getRoutingKey())) {
+                MessageBatch full = batching.addToBatch(outboxMessage.getExchange(), outboxMessage.getRoutingKey(), message);
+
+                if (full != null) {
+                    confirms.add(publisher.send(full.exchange(), full.routingKey(), full.message()));
+                }
+            }
+            else {
+                confirms.add(sendTraced(outboxMessage, message));
+            }
+        }
+
+        for (MessageBatch rest : batching.releaseBatches()) {
+            confirms.add(publisher.send(rest.exchange(), rest.routingKey(), rest.message()));
+        }
+
+        awaitConfirms(confirms);
+
+        OffsetDateTime confirmedAt = OffsetDateTime.now();
+        for (OutboxMessage outboxMessage : batch) {
+            lag.record(Duration.between(outboxMessage.getCreatedAt(), confirmedAt));
+        }
+
+        repository.deleteAll(batch);
+
+        return batch.size();
+    }
+
+    private CompletableFuture<Void> sendTraced(OutboxMessage outboxMessage, Message message) {
+        Span span = propagator.extract(outboxMessage.getHeaders(), Map::get)
+                .name("outbox relay " + outboxMessage.getRoutingKey())
+                .start();
+
+        try (Tracer.SpanInScope scope = tracer.withSpan(span)) {
+            return publisher.send(outboxMessage.getExchange(), outboxMessage.getRoutingKey(), message);
+        }
+        finally {
+            span.end();
+        }
+    }
+
+    private void awaitConfirms(List<CompletableFuture<Void>> confirms) {
+        try {
+            CompletableFuture.allOf(confirms.toArray(new CompletableFuture[0]))
+                    .get(properties.getConfirmTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmqpException(e);
+        }
+        catch (ExecutionException e) {
+            throw new AmqpException(e.getCause());
+        }
+        catch (TimeoutException e) {
+            throw new AmqpException("Broker did not confirm the outbox batch within " + properties.getConfirmTimeout());
+        }
+    }
+
+    private static Message toMessage(OutboxMessage outboxMessage) {
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType(outboxMessage.getContentType());
+        outboxMessage.getHeaders().forEach(messageProperties::setHeader);
+
+        return new Message(outboxMessage.getBody(), messageProperties);
+    }
+
+}
@@ -0,0 +1,108 @@
+package io.github.bagdad.models.repository;
+
+import io.github.bagdad.models.messaging.OutboxMessage;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class OutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void saveAll(List<OutboxMessage> messages) {
+        String sql = """
+        INSERT INTO outbox_events (
+            exchange, routing_key, content_type, header_names, header_values, body
+        ) VALUES (?, ?, ?, ?, ?, ?)
+        """;
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                OutboxMessage message = messages.get(i);
+
+                ps.setString(1, message.getExchange());
+                ps.setString(2, message.getRoutingKey());
+                ps.setString(3, message.getContentType());
+                ps.setObject(4, message.getHeaders().keySet().toArray(new String[0]));
+                ps.setObject(5, message.getHeaders().values().toArray(new String[0]));
+                ps.setBytes(6, message.getBody());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return messages.size();
+            }
+        });
+    }
+
+    /**
+     * Makes the current transaction the only relay of the outbox until it ends.
+     *
+     * @return false if another instance is relaying
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT pg_try_advisory_xact_lock(hashtext('outbox_events'))",
+                Boolean.class
+        ));
+    }
+
+    /**
+     * Locks the oldest messages for the current transaction.
+     */
+    public List<OutboxMessage> lockBatch(int limit) {
+        String sql = """
+            SELECT id, exchange, routing_key, content_type, header_names, header_values, body, created_at
+            FROM outbox_events
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE
+        """;
+
+        return jdbcTemplate.query(
+                sql,
+                (rs, rowNum) -> {
+                    String[] names = (String[]) rs.getArray("header_names").getArray();
+                    String[] values = (String[]) rs.getArray("header_values").getArray();
+
+                    Map<String, String> headers = new LinkedHashMap<>();
+                    for (int i = 0; i < names.length; i++) {
+                        headers.put(names[i], values[i]);
+                    }
+
+                    return new OutboxMessage(
+                            rs.getLong("id"),
+                            rs.getString("exchange"),
+                            rs.getString("routing_key"),
+                            rs.getString("content_type"),
+                            headers,
+                            rs.getBytes("body"),
+                            rs.getObject("created_at", OffsetDateTime.class)
+                    );
+                },
+                limit
+        );
+    }
+
+    public void deleteAll(List<OutboxMessage> messages) {
+        Long[] ids = messages.stream()
+                .map(OutboxMessage::getId)
+                .toArray(Long[]::new);
+
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ANY(?)", (Object) ids);
+    }
+
+}
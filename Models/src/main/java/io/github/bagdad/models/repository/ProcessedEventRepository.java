@@ -0,0 +1,57 @@
+package io.github.bagdad.models.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+@Repository
+public class ProcessedEventRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProcessedEventRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records the event ids as processed. A concurrent transaction recording the same id makes
+     * this one wait for its outcome.
+     *
+     * @return the ids that had not been recorded before
+     */
+    public Set<UUID> markProcessed(List<UUID> eventIds) {
+        String sql = """
+            INSERT INTO processed_events (event_id)
+            SELECT unnest(?::uuid[])
+            ON CONFLICT (event_id) DO NOTHING
+            RETURNING event_id
+        """;
+
+        return new HashSet<>(jdbcTemplate.queryForList(
+                sql,
+                UUID.class,
+                (Object) eventIds.stream().map(UUID::toString).toArray(String[]::new)
+        ));
+    }
+
+    public boolean isProcessed(UUID eventId) {
+        String sql = "SELECT EXISTS (SELECT 1 FROM processed_events WHERE event_id = ?)";
+
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, Boolean.class, eventId));
+    }
+
+    /**
+     * @return number of purged ids
+     */
+    public int deleteOlderThan(Duration retention) {
+        String sql = "DELETE FROM processed_events WHERE processed_at < NOW() - make_interval(secs => ?)";
+
+        return jdbcTemplate.update(sql, retention.toSeconds());
+    }
+
+}
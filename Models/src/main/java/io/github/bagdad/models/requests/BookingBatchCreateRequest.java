@@ -0,0 +1,17 @@
+package io.github.bagdad.models.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BookingBatchCreateRequest(
+
+    @NotEmpty
+    @Size(max = 1000)
+    List<@Valid BookingCreateRequest> bookings
+
+) {
+
+}
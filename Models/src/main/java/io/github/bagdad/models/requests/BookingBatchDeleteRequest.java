@@ -0,0 +1,16 @@
+package io.github.bagdad.models.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BookingBatchDeleteRequest(
+
+    @NotEmpty
+    @Size(max = 1000)
+    List<Long> ids
+
+) {
+
+}
@@ -0,0 +1,17 @@
+package io.github.bagdad.models.requests;
+
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record FlightBulkDeleteRequest(
+
+    @NotEmpty
+    @Size(max = 10000)
+    List<Long> ids
+
+) {
+
+}
@@ -0,0 +1,24 @@
+package io.github.bagdad.models.requests;
+
+import jakarta.validation.constraints.*;
+
+import java.util.List;
+
+public record FlightPageRequest(
+
+        String cursor,
+
+        @Min(value = 1, message = "Page size must be positive")
+        @Max(value = 200, message = "Page size must be equal or less than 200")
+        Integer size,
+
+        @Pattern(regexp = "departure|arrival|ticketPrice")
+        String sort,
+
+        @Pattern(regexp = "(?i)asc|desc")
+        String direction,
+
+        List<String> fields
+) {
+
+}
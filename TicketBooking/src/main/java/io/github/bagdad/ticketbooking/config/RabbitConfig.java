@@ -1,35 +1,47 @@
 package io.github.bagdad.ticketbooking.config;
 
+import io.github.bagdad.models.config.MessagingConfig;
+import io.github.bagdad.models.config.MessagingProperties;
 import io.github.bagdad.models.events.*;
+import io.github.bagdad.models.messaging.BinaryEventMessageConverter;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
 import org.springframework.amqp.support.converter.DefaultClassMapper;
 import org.springframework.amqp.support.converter.JacksonJsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 
 import java.util.HashMap;
 import java.util.Map;
 
 
 @Configuration
+@Import(MessagingConfig.class)
 public class RabbitConfig {
 
     public static final String EXCHANGE = "booking-exchange";
 
     public static final String FLIGHT_CANCELLED_QUEUE = "flight.cancelled.queue";
+    public static final String FLIGHTS_CANCELLED_QUEUE = "flights.cancelled.queue";
     public static final String BOOKING_CONFIRMED_QUEUE = "flight.booking-confirmed.queue";
     public static final String BOOKING_REJECTED_QUEUE = "flight.booking-rejected.queue";
     public static final String BOOKING_UPDATE_CONFIRMED_QUEUE = "flight.booking-update-confirmed.queue";
     public static final String BOOKING_UPDATE_REJECTED_QUEUE = "flight.booking-update-rejected.queue";
 
     public static final String BOOKING_CREATED_ROUTING_KEY = "booking.created";
+    public static final String BOOKING_BATCH_CREATED_ROUTING_KEY = "booking.batch-created";
+    public static final String BOOKING_BATCH_CANCELLED_ROUTING_KEY = "booking.batch-cancelled";
     public static final String BOOKING_CONFIRMED_ROUTING_KEY = "flight.booking-confirmed";
     public static final String BOOKING_REJECTED_ROUTING_KEY = "flight.booking-rejected";
 
+    public static final String FLIGHT_ID_HEADER = "flight-id";
+
     @Bean
     TopicExchange exchange() {
         return new TopicExchange(EXCHANGE);
@@ -40,6 +52,11 @@ public class RabbitConfig {
         return new Queue(FLIGHT_CANCELLED_QUEUE, true);
     }
 
+    @Bean
+    Queue flightsCancelledQueue() {
+        return new Queue(FLIGHTS_CANCELLED_QUEUE, true);
+    }
+
     @Bean
     Queue bookingConfirmedQueue() {
         return new Queue(BOOKING_CONFIRMED_QUEUE, true);
@@ -68,6 +85,14 @@ public class RabbitConfig {
                 .with("flight.cancelled");
     }
 
+    @Bean
+    Binding flightsCancelledBinding() {
+        return BindingBuilder
+                .bind(flightsCancelledQueue())
+                .to(exchange())
+                .with("flights.cancelled");
+    }
+
     @Bean
     Binding bookingConfirmedBinding() {
         return BindingBuilder
@@ -118,6 +143,7 @@ public class RabbitConfig {
         idClassMapping.put("booking_confirmed", BookingConfirmed.class);
         idClassMapping.put("booking_rejected", BookingRejected.class);
         idClassMapping.put("flight_cancelled", FlightCancelled.class);
+        idClassMapping.put("flights_cancelled", FlightsCancelled.class);
         idClassMapping.put("booking_update_rejected", BookingUpdateRejected.class);
         idClassMapping.put("booking_update_confirmed", BookingUpdateConfirmed.class);
         classMapper.setIdClassMapping(idClassMapping);
@@ -126,27 +152,93 @@ public class RabbitConfig {
     }
 
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public MessageConverter binaryMessageConverter() {
+        return new BinaryEventMessageConverter();
+    }
+
+    /**
+     * Listeners pick the converter by content type, so JSON and binary producers can coexist.
+     */
+    @Bean
+    public MessageConverter listenerMessageConverter() {
+        ContentTypeDelegatingMessageConverter converter = new ContentTypeDelegatingMessageConverter(jsonMessageConverter());
+        converter.addDelegate(BinaryEventMessageConverter.CONTENT_TYPE, binaryMessageConverter());
+        return converter;
+    }
+
+    @Bean
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory, MessagingProperties properties) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(jsonMessageConverter());
+        rabbitTemplate.setMessageConverter(properties.getWireFormat() == MessagingProperties.WireFormat.BINARY
+                ? binaryMessageConverter()
+                : jsonMessageConverter());
         rabbitTemplate.setExchange(EXCHANGE);
+        // propagates the trace context in the message headers
+        rabbitTemplate.setObservationEnabled(true);
         return rabbitTemplate;
     }
 
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            MessageConverter jsonMessageConverter
+            MessageConverter listenerMessageConverter,
+            MessagingProperties properties
     ) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(jsonMessageConverter);
+        factory.setMessageConverter(listenerMessageConverter);
         factory.setConcurrentConsumers(1);
         factory.setMaxConcurrentConsumers(1);
 
         factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
 
+        configureListeners(factory, properties);
+
         return factory;
     }
 
+    /**
+     * For queues that receive producer-side batch messages. The listener gets the whole batch as
+     * one list and acknowledges its single delivery once.
+     */
+    @Bean
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            MessageConverter listenerMessageConverter,
+            MessagingProperties properties
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(listenerMessageConverter);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+
+        factory.setBatchListener(true);
+
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+
+        configureListeners(factory, properties);
+
+        return factory;
+    }
+
+    private static void configureListeners(SimpleRabbitListenerContainerFactory factory, MessagingProperties properties) {
+        if (properties.isVirtualThreads()) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("rabbit-listener-");
+            executor.setVirtualThreads(true);
+            factory.setTaskExecutor(executor);
+        }
+
+        // continues the producer's trace in every listener
+        factory.setObservationEnabled(true);
+
+        factory.setContainerCustomizer(container -> {
+            String queue = container.getQueueNames()[0];
+
+            container.setPrefetchCount(properties.prefetchFor(queue));
+            container.setMaxConcurrentConsumers(properties.maxConcurrencyFor(queue));
+            container.setConcurrentConsumers(properties.concurrencyFor(queue));
+        });
+    }
+
 }
\ No newline at end of file
@@ -1,16 +1,25 @@
 package io.github.bagdad.ticketbooking.controller;
 
 import io.github.bagdad.models.requests.*;
+import io.github.bagdad.ticketbooking.exception.BookingBatchTooLargeException;
+import io.github.bagdad.ticketbooking.exception.BookingNotFoundException;
 import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.model.BookingBatchItem;
 import io.github.bagdad.ticketbooking.model.BookingStatistics;
+import io.github.bagdad.ticketbooking.model.BookingStatusView;
 import io.github.bagdad.ticketbooking.service.BookingService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 @CrossOrigin(origins = "http://localhost:*")
@@ -19,9 +28,17 @@ import java.util.List;
 public class BookingController {
 
     private final BookingService service;
-
-    public BookingController(BookingService service) {
+    private final Duration statusStreamTimeout;
+    private final AsyncTaskExecutor streamExecutor;
+
+    public BookingController(
+            BookingService service,
+            @Value("${booking.status-stream.timeout:30s}") Duration statusStreamTimeout,
+            @Qualifier("applicationTaskExecutor") AsyncTaskExecutor streamExecutor
+    ) {
         this.service = service;
+        this.statusStreamTimeout = statusStreamTimeout;
+        this.streamExecutor = streamExecutor;
     }
 
     @PostMapping("/create")
@@ -34,6 +51,29 @@ public class BookingController {
         return service.create(booking);
     }
 
+    /**
+     * Takes a JSON body; every booking gets an item in the response, failed ones with their error.
+     */
+    @PostMapping("/create-batch")
+    public List<BookingBatchItem> createBatch(@RequestBody BookingBatchCreateRequest request) {
+        if (request.bookings() == null) {
+            return List.of();
+        }
+
+        List<Booking> bookings = request.bookings().stream()
+                .map(item -> {
+                    Booking booking = new Booking();
+
+                    booking.setFlightId(item.flightId());
+                    booking.setPassengerCount(item.passengerCount());
+
+                    return booking;
+                })
+                .toList();
+
+        return service.createAll(bookings);
+    }
+
     @PostMapping("/query")
     public List<Booking> query(BookingQueryRequest query) {
         return service.query(query);
@@ -49,6 +89,44 @@ public class BookingController {
         return service.update(booking);
     }
 
+    @GetMapping("/{id}/status")
+    public BookingStatusView status(@PathVariable Long id) {
+        return service.status(id);
+    }
+
+    /**
+     * Sends the current status as a {@code status} event and, if the booking is still pending, the
+     * status it settles in; then closes the stream.
+     */
+    @GetMapping(path = "/{id}/status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStatus(@PathVariable Long id) throws IOException {
+        BookingStatusView current = service.status(id);
+        SseEmitter emitter = new SseEmitter(statusStreamTimeout.toMillis());
+
+        emitter.send(SseEmitter.event().name("status").data(current));
+
+        if (current.getStatus().isSettled()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        // The future completes on the listener thread that settled the booking, a slow client must
+        // not hold it.
+        service.awaitSettled(id).whenCompleteAsync((settled, error) -> {
+            try {
+                if (settled != null) {
+                    emitter.send(SseEmitter.event().name("status").data(settled));
+                }
+                emitter.complete();
+            }
+            catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }, streamExecutor);
+
+        return emitter;
+    }
+
     @GetMapping("/all")
     public List<Booking> findAll() {
         return service.findAll();
@@ -68,9 +146,33 @@ public class BookingController {
         service.cancel(request.id());
     }
 
+    @PostMapping("/delete-batch")
+    public List<BookingBatchItem> cancelBatch(BookingBatchDeleteRequest request) {
+        if (request.ids() == null) {
+            return List.of();
+        }
+
+        return service.cancelAll(request.ids());
+    }
+
     @PostMapping("/statistics")
     public BookingStatistics calculateStatistics() {
         return service.calculateStatistics();
     }
 
+    @PostMapping("/statistics/flight")
+    public BookingStatistics calculateFlightStatistics(@RequestParam Long flightId) {
+        return service.calculateStatistics(flightId);
+    }
+
+    @ExceptionHandler(BookingNotFoundException.class)
+    public ResponseEntity<String> handleNotFound(BookingNotFoundException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(e.getMessage());
+    }
+
+    @ExceptionHandler(BookingBatchTooLargeException.class)
+    public ResponseEntity<String> handleBatchTooLarge(BookingBatchTooLargeException e) {
+        return ResponseEntity.status(e.getStatusCode()).body(e.getMessage());
+    }
+
 }
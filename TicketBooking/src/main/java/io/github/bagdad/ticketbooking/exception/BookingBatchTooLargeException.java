@@ -0,0 +1,16 @@
+package io.github.bagdad.ticketbooking.exception;
+
+import lombok.Getter;
+
+@Getter
+public class BookingBatchTooLargeException extends RuntimeException {
+    private String message;
+    private int statusCode;
+
+    public BookingBatchTooLargeException(int size, int maxSize) {
+        super("Batch of " + size + " bookings exceeds the limit of " + maxSize);
+        this.message = "Batch of " + size + " bookings exceeds the limit of " + maxSize;
+        this.statusCode = 400;
+    }
+
+}
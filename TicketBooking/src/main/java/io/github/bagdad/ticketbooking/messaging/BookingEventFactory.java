@@ -1,10 +1,14 @@
 package io.github.bagdad.ticketbooking.messaging;
 
+import io.github.bagdad.models.events.BookingBatchCancelled;
+import io.github.bagdad.models.events.BookingBatchCreated;
 import io.github.bagdad.models.events.BookingCancelled;
 import io.github.bagdad.models.events.BookingCreated;
 import io.github.bagdad.models.events.BookingUpdated;
 import io.github.bagdad.ticketbooking.model.Booking;
 
+import java.util.List;
+
 public class BookingEventFactory {
 
     public static BookingCreated created(Booking booking) {
@@ -29,4 +33,20 @@ public class BookingEventFactory {
                 nwePassengerCount
         );
     }
+
+    public static BookingBatchCreated batchCreated(Long flightId, List<Booking> bookings) {
+        return new BookingBatchCreated(
+                flightId,
+                bookings.stream().map(Booking::getId).toList(),
+                bookings.stream().map(Booking::getPassengerCount).toList()
+        );
+    }
+
+    public static BookingBatchCancelled batchCancelled(Long flightId, List<Booking> bookings) {
+        return new BookingBatchCancelled(
+                flightId,
+                bookings.stream().map(Booking::getId).toList(),
+                bookings.stream().mapToInt(Booking::getPassengerCount).sum()
+        );
+    }
 }
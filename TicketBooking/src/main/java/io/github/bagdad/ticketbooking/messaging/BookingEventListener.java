@@ -2,89 +2,124 @@ package io.github.bagdad.ticketbooking.messaging;
 
 import com.rabbitmq.client.Channel;
 import io.github.bagdad.models.events.*;
+import io.github.bagdad.models.messaging.Deliveries;
+import io.github.bagdad.models.messaging.IdempotentExecutor;
+import io.github.bagdad.models.messaging.ListenerMetrics;
 import io.github.bagdad.ticketbooking.config.RabbitConfig;
 import io.github.bagdad.ticketbooking.service.BookingService;
 import lombok.AllArgsConstructor;
-import org.springframework.amqp.AmqpRejectAndDontRequeueException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+@Slf4j
 @Component
 @AllArgsConstructor
 public class BookingEventListener {
 
     private final BookingService service;
+    private final IdempotentExecutor executor;
+    private final ListenerMetrics metrics;
 
     @RabbitListener(queues = RabbitConfig.BOOKING_CONFIRMED_QUEUE)
     public void handleBookingConfirmed(BookingConfirmed event, Message message, Channel channel) throws Exception {
         try {
-            service.confirmBooking(event);
+            executor.execute(RabbitConfig.BOOKING_CONFIRMED_QUEUE, event, () -> service.confirmBooking(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing booking confirmed message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking confirmed message", e);
+            metrics.nacked(RabbitConfig.BOOKING_CONFIRMED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
-    @RabbitListener(queues = "flight.booking-rejected.queue")
+    @RabbitListener(queues = RabbitConfig.BOOKING_REJECTED_QUEUE)
     private void handleBookingRejected(BookingRejected event, Message message, Channel channel) throws Exception {
         try {
-            service.reject(event);
+            executor.execute(RabbitConfig.BOOKING_REJECTED_QUEUE, event, () -> service.reject(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing booking rejected message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking rejected message", e);
+            metrics.nacked(RabbitConfig.BOOKING_REJECTED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
+        }
+    }
+
+    /**
+     * FlightManagement may pack flight.cancelled events into one batch message; all events of a
+     * batch share its delivery tag, so the delivery is acknowledged once. Cancelling a flight's
+     * bookings is idempotent and chunked into its own transactions, so events are recorded after
+     * the fact.
+     */
+    @RabbitListener(queues = RabbitConfig.FLIGHT_CANCELLED_QUEUE, containerFactory = "batchRabbitListenerContainerFactory")
+    public void handleFlightCancelled(List<org.springframework.messaging.Message<FlightCancelled>> messages, Channel channel) throws Exception {
+        long deliveryTag = messages.get(messages.size() - 1).getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+
+        try {
+            for (org.springframework.messaging.Message<FlightCancelled> message : messages) {
+                FlightCancelled event = message.getPayload();
+
+                executor.executeThenRecord(RabbitConfig.FLIGHT_CANCELLED_QUEUE, event, () -> service.cancelBookingsOnFlight(event));
+            }
+
+            channel.basicAck(deliveryTag, false);
+        }
+        catch (Exception e) {
+            log.error("Error processing flight cancelled batch", e);
+            metrics.nacked(RabbitConfig.FLIGHT_CANCELLED_QUEUE, e);
+            throw Deliveries.nack(channel, deliveryTag, false, e);
         }
     }
 
-    @RabbitListener(queues = "flight.cancelled.queue")
-    public void handleFlightCancelled(FlightCancelled event, Message message, Channel channel) throws Exception {
+    @RabbitListener(queues = RabbitConfig.FLIGHTS_CANCELLED_QUEUE)
+    public void handleFlightsCancelled(FlightsCancelled event, Message message, Channel channel) throws Exception {
         try {
-            service.cancelBookingsOnFlight(event);
+            executor.executeThenRecord(RabbitConfig.FLIGHTS_CANCELLED_QUEUE, event, () -> service.cancelBookingsOnFlights(event.getFlightIds()));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight flight cancelled message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing flights cancelled message", e);
+            metrics.nacked(RabbitConfig.FLIGHTS_CANCELLED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
     @RabbitListener(queues = RabbitConfig.BOOKING_UPDATE_CONFIRMED_QUEUE)
     public void handleBookingUpdate(BookingUpdateConfirmed event, Message message, Channel channel) throws Exception {
         try {
-            service.confirmBookingUpdate(event);
+            executor.execute(RabbitConfig.BOOKING_UPDATE_CONFIRMED_QUEUE, event, () -> service.confirmBookingUpdate(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight flight cancelled message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking update confirmed message", e);
+            metrics.nacked(RabbitConfig.BOOKING_UPDATE_CONFIRMED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
     @RabbitListener(queues = RabbitConfig.BOOKING_UPDATE_REJECTED_QUEUE)
     public void handleFlightCancelled(BookingUpdateRejected event, Message message, Channel channel) throws Exception {
         try {
-            System.out.println("Get booking update rejected event: " + event.toString());
+            log.debug("Booking update rejected: {}", event);
 
-            service.rejectBookingUpdate(event);
+            executor.execute(RabbitConfig.BOOKING_UPDATE_REJECTED_QUEUE, event, () -> service.rejectBookingUpdate(event));
 
             channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
         }
         catch (Exception e) {
-            System.err.println("Error processing flight flight cancelled message: " + e.getMessage());
-            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
-            throw new AmqpRejectAndDontRequeueException(e);
+            log.error("Error processing booking update rejected message", e);
+            metrics.nacked(RabbitConfig.BOOKING_UPDATE_REJECTED_QUEUE, e);
+            throw Deliveries.nack(channel, message.getMessageProperties().getDeliveryTag(), false, e);
         }
     }
 
@@ -1,50 +1,90 @@
 package io.github.bagdad.ticketbooking.messaging;
 
+import io.github.bagdad.models.events.BookingBatchCancelled;
+import io.github.bagdad.models.events.BookingBatchCreated;
 import io.github.bagdad.models.events.BookingCancelled;
 import io.github.bagdad.models.events.BookingCreated;
 import io.github.bagdad.models.events.BookingUpdated;
+import io.github.bagdad.models.messaging.EventSender;
 import io.github.bagdad.ticketbooking.config.RabbitConfig;
 import io.github.bagdad.ticketbooking.model.Booking;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.amqp.core.MessagePostProcessor;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
+@Timed("messaging.publisher")
 @Component
 public class BookingEventPublisher {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final EventSender sender;
 
-    public BookingEventPublisher(RabbitTemplate rabbitTemplate) {
-        this.rabbitTemplate = rabbitTemplate;
+    public BookingEventPublisher(EventSender sender) {
+        this.sender = sender;
     }
 
     public void publishBookingCreated(Booking booking) {
         BookingCreated event = BookingEventFactory.created(booking);
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "booking.created",
-                event
+                event,
+                withFlightId(booking.getFlightId())
         );
     }
 
     public void publishBookingCancelled(Booking booking) {
         BookingCancelled event = BookingEventFactory.bookingCancelled(booking);
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "booking.cancelled",
-                event
+                event,
+                withFlightId(booking.getFlightId())
         );
     }
 
     public void publishBookingUpdated(Long bookingId, Long flightId, Integer currentPassengerCount, Integer newPassengerCount) {
         BookingUpdated event = BookingEventFactory.bookingUpdated(bookingId, flightId, currentPassengerCount, newPassengerCount);
 
-        rabbitTemplate.convertAndSend(
-                RabbitConfig.EXCHANGE,
+        sender.send(
                 "booking.updated",
-                event
+                event,
+                withFlightId(flightId)
+        );
+    }
+
+    /**
+     * Announces bookings of one flight created together, so FlightManagement can settle them in one step.
+     */
+    public void publishBookingBatchCreated(Long flightId, List<Booking> bookings) {
+        BookingBatchCreated event = BookingEventFactory.batchCreated(flightId, bookings);
+
+        sender.send(
+                RabbitConfig.BOOKING_BATCH_CREATED_ROUTING_KEY,
+                event,
+                withFlightId(flightId)
         );
     }
 
+    public void publishBookingBatchCancelled(Long flightId, List<Booking> bookings) {
+        BookingBatchCancelled event = BookingEventFactory.batchCancelled(flightId, bookings);
+
+        sender.send(
+                RabbitConfig.BOOKING_BATCH_CANCELLED_ROUTING_KEY,
+                event,
+                withFlightId(flightId)
+        );
+    }
+
+    /**
+     * Adds the flight id header used by FlightManagement to keep events of one flight in one partition.
+     */
+    private static MessagePostProcessor withFlightId(Long flightId) {
+        return message -> {
+            message.getMessageProperties().setHeader(RabbitConfig.FLIGHT_ID_HEADER, String.valueOf(flightId));
+            return message;
+        };
+    }
+
 }
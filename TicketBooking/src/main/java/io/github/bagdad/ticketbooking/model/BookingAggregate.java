@@ -0,0 +1,19 @@
+package io.github.bagdad.ticketbooking.model;
+
+import lombok.*;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingAggregate {
+
+    private Long flightId;
+
+    private BookingStatus status;
+
+    private long bookingCount;
+
+    private long passengerCount;
+
+}
@@ -0,0 +1,34 @@
+package io.github.bagdad.ticketbooking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Outcome of one item of a batch request, at the item's position in the request. {@code status} is
+ * set when the item was applied, {@code error} when it was skipped.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingBatchItem {
+
+    private int index;
+
+    private Long bookingId;
+
+    private BookingState status;
+
+    private String error;
+
+    public static BookingBatchItem applied(int index, Long bookingId, BookingState status) {
+        return new BookingBatchItem(index, bookingId, status, null);
+    }
+
+    public static BookingBatchItem failed(int index, Long bookingId, String error) {
+        return new BookingBatchItem(index, bookingId, null, error);
+    }
+
+}
@@ -0,0 +1,20 @@
+package io.github.bagdad.ticketbooking.model;
+
+/**
+ * Where a booking stands in the saga, as reported by the status endpoints. Rejected and cancelled
+ * bookings are deleted, so those two states never appear in the bookings table.
+ */
+public enum BookingState {
+    PENDING,
+    CONFIRMED,
+    REJECTED,
+    CANCELLED;
+
+    public static BookingState of(BookingStatus status) {
+        return status == BookingStatus.CONFIRMED ? CONFIRMED : PENDING;
+    }
+
+    public boolean isSettled() {
+        return this != PENDING;
+    }
+}
@@ -2,6 +2,8 @@ package io.github.bagdad.ticketbooking.model;
 
 import lombok.*;
 
+import java.util.Map;
+
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -14,4 +16,6 @@ public class BookingStatistics {
 
     private Integer bookingCount;
 
+    private Map<BookingStatus, Integer> bookingCountByStatus;
+
 }
@@ -0,0 +1,22 @@
+package io.github.bagdad.ticketbooking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BookingStatusView {
+
+    private Long id;
+
+    private BookingState status;
+
+    private LocalDateTime updatedAt;
+
+}
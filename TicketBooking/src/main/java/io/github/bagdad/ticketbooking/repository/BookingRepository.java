@@ -3,21 +3,24 @@ package io.github.bagdad.ticketbooking.repository;
 import io.github.bagdad.models.requests.BookingQueryRequest;
 import io.github.bagdad.models.requests.FlightQueryRequest;
 import io.github.bagdad.ticketbooking.model.Booking;
-import io.github.bagdad.ticketbooking.model.BookingStatistics;
+import io.github.bagdad.ticketbooking.model.BookingAggregate;
+import io.github.bagdad.ticketbooking.model.BookingStatus;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
+@Timed("booking.repository")
 @Repository
 public class BookingRepository {
 
     private final JdbcTemplate jdbcTemplate;
     private static final BookingMapper BOOKING_MAPPER = new BookingMapper();
-    private static final StatisticsMapper STATISTICS_MAPPER = new StatisticsMapper();
 
 
     public BookingRepository(JdbcTemplate jdbcTemplate) {
@@ -49,6 +52,47 @@ public class BookingRepository {
         );
     }
 
+    /**
+     * Inserts the bookings with a single statement. All bookings take the status and timestamps of
+     * the first one.
+     *
+     * @return the stored bookings, in the order they were passed
+     */
+    public List<Booking> saveAll(List<Booking> bookings) {
+        String sql = """
+        INSERT INTO bookings (
+            flight_id, passenger_count, status, created_at, updated_at
+        )
+        SELECT item.flight_id, item.passenger_count, ?, ?, ?
+        FROM unnest(?::bigint[], ?::smallint[]) WITH ORDINALITY AS item(flight_id, passenger_count, position)
+        ORDER BY item.position
+        RETURNING
+            id,
+            flight_id,
+            passenger_count,
+            status,
+            created_at,
+            updated_at
+        """;
+
+        Booking first = bookings.get(0);
+
+        List<Booking> saved = new ArrayList<>(jdbcTemplate.query(
+                sql,
+                BOOKING_MAPPER,
+                first.getStatus().name(),
+                first.getCreatedAt(),
+                first.getUpdatedAt(),
+                bookings.stream().map(Booking::getFlightId).toArray(Long[]::new),
+                bookings.stream().map(Booking::getPassengerCount).toArray(Integer[]::new)
+        ));
+
+        // Ids are drawn in insertion order, RETURNING itself promises no order.
+        saved.sort(Comparator.comparing(Booking::getId));
+
+        return saved;
+    }
+
     public Booking update(Booking booking) {
         String sql = """
             UPDATE bookings SET
@@ -127,21 +171,49 @@ public class BookingRepository {
         );
     }
 
-    public void deleteById(Long bookingId) {
-        String sql = "DELETE FROM bookings WHERE id = ?";
+    public Optional<Booking> deleteById(Long bookingId) {
+        String sql = "DELETE FROM bookings WHERE id = ? RETURNING *";
 
-        jdbcTemplate.update(
+        return jdbcTemplate.query(
                 sql,
+                BOOKING_MAPPER,
                 bookingId
+        ).stream().findFirst();
+    }
+
+    /**
+     * @return the deleted bookings; unknown ids are ignored
+     */
+    public List<Booking> deleteAllById(List<Long> ids) {
+        String sql = "DELETE FROM bookings WHERE id = ANY(?) RETURNING *";
+
+        return jdbcTemplate.query(
+                sql,
+                BOOKING_MAPPER,
+                (Object) ids.toArray(new Long[0])
         );
     }
 
-    public void deleteByFlightId(Long flightId) {
-        String sql = "DELETE FROM bookings WHERE flight_id = ?";
+    /**
+     * Deletes at most {@code limit} bookings of the given flights, so that a large cascade can be
+     * split into short transactions.
+     *
+     * @return number of deleted bookings
+     */
+    public int deleteByFlightIds(List<Long> flightIds, int limit) {
+        String sql = """
+            DELETE FROM bookings
+            WHERE id IN (
+                SELECT id FROM bookings
+                WHERE flight_id = ANY(?)
+                LIMIT ?
+            )
+        """;
 
-        jdbcTemplate.update(
+        return jdbcTemplate.update(
                 sql,
-                flightId
+                flightIds.toArray(new Long[0]),
+                limit
         );
     }
 
@@ -165,18 +237,25 @@ public class BookingRepository {
         );
     }
 
-    public BookingStatistics calculateStatistics() {
+    public List<BookingAggregate> aggregateByFlightAndStatus() {
         String sql = """
             SELECT
+            flight_id,
+            status,
             COUNT(*) as booking_count,
-            SUM(passenger_count) as total_passenger_count,
-            AVG(passenger_count) as average_passenger_count
-            FROM bookings;
+            SUM(passenger_count) as passenger_count
+            FROM bookings
+            GROUP BY flight_id, status
         """;
 
-        return jdbcTemplate.queryForObject(
+        return jdbcTemplate.query(
                 sql,
-                STATISTICS_MAPPER
+                (rs, rowNum) -> new BookingAggregate(
+                        rs.getLong("flight_id"),
+                        BookingStatus.valueOf(rs.getString("status").toUpperCase()),
+                        rs.getLong("booking_count"),
+                        rs.getLong("passenger_count")
+                )
         );
     }
 
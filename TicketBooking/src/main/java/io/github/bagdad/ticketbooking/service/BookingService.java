@@ -3,31 +3,66 @@ package io.github.bagdad.ticketbooking.service;
 import io.github.bagdad.models.events.*;
 import io.github.bagdad.models.requests.BookingQueryRequest;
 import io.github.bagdad.models.requests.FlightQueryRequest;
+import io.github.bagdad.ticketbooking.exception.BookingBatchTooLargeException;
 import io.github.bagdad.ticketbooking.exception.BookingNotFoundException;
 import io.github.bagdad.ticketbooking.helper.CSVHelper;
 import io.github.bagdad.ticketbooking.messaging.BookingEventPublisher;
 import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.model.BookingBatchItem;
+import io.github.bagdad.ticketbooking.model.BookingState;
 import io.github.bagdad.ticketbooking.model.BookingStatistics;
 import io.github.bagdad.ticketbooking.model.BookingStatus;
+import io.github.bagdad.ticketbooking.model.BookingStatusView;
 import io.github.bagdad.ticketbooking.repository.BookingRepository;
+import io.github.bagdad.ticketbooking.service.PendingBookingMetrics.Outcome;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class BookingService {
 
+    private static final int MAX_PASSENGER_COUNT = 500;
+
     private final BookingEventPublisher publisher;
     private final BookingRepository repository;
-
-    BookingService(BookingEventPublisher publisher, BookingRepository repository) {
+    private final BookingStatisticsAccumulator statistics;
+    private final PendingBookingMetrics pendingMetrics;
+    private final BookingStatusCache statusCache;
+    private final int cancellationChunkSize;
+    private final int maxBatchSize;
+
+    BookingService(
+            BookingEventPublisher publisher,
+            BookingRepository repository,
+            BookingStatisticsAccumulator statistics,
+            PendingBookingMetrics pendingMetrics,
+            BookingStatusCache statusCache,
+            @Value("${booking.cancellation.chunk-size:5000}") int cancellationChunkSize,
+            @Value("${booking.batch.max-size:1000}") int maxBatchSize
+    ) {
         this.publisher = publisher;
         this.repository = repository;
+        this.statistics = statistics;
+        this.pendingMetrics = pendingMetrics;
+        this.statusCache = statusCache;
+        this.cancellationChunkSize = cancellationChunkSize;
+        this.maxBatchSize = maxBatchSize;
     }
 
+    @Transactional
     public Booking create(Booking booking) {
         booking.setStatus(BookingStatus.PENDING);
 
@@ -37,44 +72,166 @@ public class BookingService {
         booking.setUpdatedAt(now);
 
         Booking savedBooking = repository.save(booking);
+        statistics.added(savedBooking.getFlightId(), savedBooking.getStatus(), savedBooking.getPassengerCount());
+        statusCache.changed(savedBooking);
 
         publisher.publishBookingCreated(savedBooking);
 
         return savedBooking;
     }
 
+    /**
+     * Stores the valid bookings with one insert and announces them with one BookingBatchCreated per
+     * flight. Invalid bookings are skipped and reported with their error.
+     *
+     * @return one item per booking, in request order
+     */
+    @Transactional
+    public List<BookingBatchItem> createAll(List<Booking> bookings) {
+        requireBatchSize(bookings.size());
+
+        LocalDateTime now = LocalDateTime.now();
+        BookingBatchItem[] items = new BookingBatchItem[bookings.size()];
+        List<Booking> valid = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking booking = bookings.get(i);
+            String error = validate(booking);
+
+            if (error != null) {
+                items[i] = BookingBatchItem.failed(i, null, error);
+                continue;
+            }
+
+            booking.setStatus(BookingStatus.PENDING);
+            booking.setCreatedAt(now);
+            booking.setUpdatedAt(now);
+
+            valid.add(booking);
+            positions.add(i);
+        }
+
+        if (valid.isEmpty()) {
+            return List.of(items);
+        }
+
+        List<Booking> saved = repository.saveAll(valid);
+        Map<Long, List<Booking>> savedByFlight = new LinkedHashMap<>();
+
+        for (int i = 0; i < saved.size(); i++) {
+            Booking savedBooking = saved.get(i);
+
+            statistics.added(savedBooking.getFlightId(), savedBooking.getStatus(), savedBooking.getPassengerCount());
+            statusCache.changed(savedBooking);
+            savedByFlight.computeIfAbsent(savedBooking.getFlightId(), flightId -> new ArrayList<>()).add(savedBooking);
+
+            items[positions.get(i)] = BookingBatchItem.applied(positions.get(i), savedBooking.getId(), BookingState.PENDING);
+        }
+
+        savedByFlight.forEach(publisher::publishBookingBatchCreated);
+
+        return List.of(items);
+    }
+
+    @Transactional
     public Booking update(Booking booking) {
         Booking existing = repository.findById(booking.getId())
                 .orElseThrow(() -> new BookingNotFoundException(booking.getId()));
 
         publisher.publishBookingUpdated(existing.getId(), existing.getFlightId(), existing.getPassengerCount(), booking.getPassengerCount());
 
+        BookingStatus oldStatus = existing.getStatus();
+        int oldPassengerCount = existing.getPassengerCount();
+
         existing.setStatus(BookingStatus.PENDING);
 
         existing.setPassengerCount(booking.getPassengerCount());
 
         existing.setUpdatedAt(LocalDateTime.now());
 
-        return repository.update(existing);
+        Booking updated = repository.update(existing);
+        statistics.changed(updated.getFlightId(), oldStatus, oldPassengerCount, updated.getStatus(), updated.getPassengerCount());
+        statusCache.changed(updated);
+
+        return updated;
     }
 
+    @Transactional(readOnly = true)
     public List<Booking> query(BookingQueryRequest query) {
         return repository.query(query);
     }
 
+    @Transactional(readOnly = true)
     public List<Booking> findAll() {
         return repository.findAll();
     }
 
+    @Transactional
     public void cancel(Long id) {
         Booking existingBooking = repository.findById(id)
                 .orElseThrow(() -> new BookingNotFoundException(id));
 
         publisher.publishBookingCancelled(existingBooking);
 
-        repository.deleteById(id);
+        repository.deleteById(id).ifPresent(this::removedFromStatistics);
+        statusCache.deleted(id, BookingState.CANCELLED);
+    }
+
+    /**
+     * Deletes the bookings with one statement and announces them with one BookingBatchCancelled per
+     * flight. Unknown and repeated ids are reported as not found.
+     *
+     * @return one item per id, in request order
+     */
+    @Transactional
+    public List<BookingBatchItem> cancelAll(List<Long> ids) {
+        requireBatchSize(ids.size());
+
+        List<Long> requestedIds = ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+
+        List<Booking> deleted = requestedIds.isEmpty() ? List.of() : repository.deleteAllById(requestedIds);
+
+        Map<Long, Booking> deletedById = deleted.stream()
+                .collect(Collectors.toMap(Booking::getId, Function.identity()));
+
+        deleted.stream()
+                .collect(Collectors.groupingBy(Booking::getFlightId, LinkedHashMap::new, Collectors.toList()))
+                .forEach(publisher::publishBookingBatchCancelled);
+
+        List<BookingBatchItem> items = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            Booking booking = id == null ? null : deletedById.remove(id);
+
+            if (booking == null) {
+                items.add(BookingBatchItem.failed(i, id, id == null ? "Booking id is required" : "Booking with id " + id + " not found"));
+                continue;
+            }
+
+            removedFromStatistics(booking);
+            statusCache.deleted(id, BookingState.CANCELLED);
+
+            items.add(BookingBatchItem.applied(i, id, BookingState.CANCELLED));
+        }
+
+        return items;
+    }
+
+    public BookingStatusView status(Long id) {
+        return statusCache.get(id)
+                .orElseThrow(() -> new BookingNotFoundException(id));
     }
 
+    public CompletableFuture<BookingStatusView> awaitSettled(Long id) {
+        return statusCache.awaitSettled(id);
+    }
+
+    @Transactional(readOnly = true)
     public InputStreamResource load() throws IOException {
         List<Booking> bookings = findAll();
 
@@ -87,40 +244,76 @@ public class BookingService {
         Booking booking = repository.findById(event.getBookingId())
                 .orElseThrow();
 
+        BookingStatus oldStatus = booking.getStatus();
+        pendingMetrics.settled(booking, Outcome.CONFIRMED);
+
         booking.setStatus(BookingStatus.CONFIRMED);
 
         booking.setUpdatedAt(LocalDateTime.now());
 
         repository.confirmBooking(booking);
+        statistics.changed(booking.getFlightId(), oldStatus, booking.getPassengerCount(), booking.getStatus(), booking.getPassengerCount());
+        statusCache.changed(booking);
     }
 
     public void reject(BookingRejected event) {
         if (event != null) {
-            repository.deleteById(event.getBookingId());
+            repository.deleteById(event.getBookingId()).ifPresent(booking -> {
+                pendingMetrics.settled(booking, Outcome.REJECTED);
+                removedFromStatistics(booking);
+                statusCache.deleted(booking.getId(), BookingState.REJECTED);
+            });
         }
     }
 
     public void cancelBookingsOnFlight(FlightCancelled event) {
         if (event.getFlightId() != null) {
-            repository.deleteByFlightId(event.getFlightId());
+            cancelBookingsOnFlights(List.of(event.getFlightId()));
         }
     }
 
+    /**
+     * Deletes the bookings of the given flights in chunks of {@code booking.cancellation.chunk-size}
+     * rows, each in its own short transaction. Safe to repeat after a partial failure.
+     */
+    public void cancelBookingsOnFlights(List<Long> flightIds) {
+        if (flightIds == null || flightIds.isEmpty()) {
+            return;
+        }
+
+        int deleted;
+        do {
+            deleted = repository.deleteByFlightIds(flightIds, cancellationChunkSize);
+        }
+        while (deleted == cancellationChunkSize);
+
+        flightIds.forEach(statistics::flightRemoved);
+    }
+
     public void confirmBookingUpdate(BookingUpdateConfirmed event) {
         Booking booking = repository.findById(event.getBookingId())
                 .orElseThrow();
 
+        BookingStatus oldStatus = booking.getStatus();
+        pendingMetrics.settled(booking, Outcome.UPDATE_CONFIRMED);
+
         booking.setStatus(BookingStatus.CONFIRMED);
 
         booking.setUpdatedAt(LocalDateTime.now());
 
         repository.confirmBooking(booking);
+        statistics.changed(booking.getFlightId(), oldStatus, booking.getPassengerCount(), booking.getStatus(), booking.getPassengerCount());
+        statusCache.changed(booking);
     }
 
     public void rejectBookingUpdate(BookingUpdateRejected event) {
         Booking booking = repository.findById(event.getBookingId())
                 .orElseThrow();
 
+        BookingStatus oldStatus = booking.getStatus();
+        int oldPassengerCount = booking.getPassengerCount();
+        pendingMetrics.settled(booking, Outcome.UPDATE_REJECTED);
+
         booking.setPassengerCount(event.getCurrentPassengerCount());
 
         booking.setStatus(BookingStatus.CONFIRMED);
@@ -128,9 +321,48 @@ public class BookingService {
         booking.setUpdatedAt(LocalDateTime.now());
 
         repository.rejectBookingUpdate(booking);
+        statistics.changed(booking.getFlightId(), oldStatus, oldPassengerCount, booking.getStatus(), booking.getPassengerCount());
+        statusCache.changed(booking);
     }
 
     public BookingStatistics calculateStatistics() {
-        return repository.calculateStatistics();
+        return statistics.statistics();
+    }
+
+    public BookingStatistics calculateStatistics(Long flightId) {
+        return statistics.statistics(flightId);
+    }
+
+    private void requireBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new BookingBatchTooLargeException(size, maxBatchSize);
+        }
+    }
+
+    /**
+     * Same rules as BookingCreateRequest, checked here because a rejected item must not fail the batch.
+     */
+    private static String validate(Booking booking) {
+        if (booking.getFlightId() == null) {
+            return "Flight id is required";
+        }
+
+        if (booking.getPassengerCount() == null) {
+            return "Passenger count is required";
+        }
+
+        if (booking.getPassengerCount() < 1) {
+            return "Passenger count must be positive";
+        }
+
+        if (booking.getPassengerCount() > MAX_PASSENGER_COUNT) {
+            return "Passenger count must be equal or less than " + MAX_PASSENGER_COUNT;
+        }
+
+        return null;
+    }
+
+    private void removedFromStatistics(Booking booking) {
+        statistics.removed(booking.getFlightId(), booking.getStatus(), booking.getPassengerCount());
     }
 }
@@ -0,0 +1,177 @@
+package io.github.bagdad.ticketbooking.service;
+
+import io.github.bagdad.ticketbooking.model.BookingAggregate;
+import io.github.bagdad.ticketbooking.model.BookingStatistics;
+import io.github.bagdad.ticketbooking.model.BookingStatus;
+import io.github.bagdad.ticketbooking.repository.BookingRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running booking counters, overall and per flight, split by status. {@link BookingService}
+ * reports every change it makes, so reading the statistics never touches the database. Changes
+ * reported inside a transaction are applied after it commits, so rolled-back or redelivered work
+ * is never counted.
+ * <p>
+ * The counters are rebuilt from a single GROUP BY every {@code booking.statistics.reconcile-interval}.
+ * A change committed while that scan runs may be missed or counted twice until the next one.
+ */
+@Component
+public class BookingStatisticsAccumulator {
+
+    private final BookingRepository repository;
+
+    private volatile State state = new State();
+
+    public BookingStatisticsAccumulator(BookingRepository repository) {
+        this.repository = repository;
+    }
+
+    public void added(Long flightId, BookingStatus status, int passengerCount) {
+        afterCommit(() -> state.apply(flightId, status, 1, passengerCount));
+    }
+
+    public void removed(Long flightId, BookingStatus status, int passengerCount) {
+        afterCommit(() -> state.apply(flightId, status, -1, -passengerCount));
+    }
+
+    public void changed(
+            Long flightId,
+            BookingStatus oldStatus,
+            int oldPassengerCount,
+            BookingStatus newStatus,
+            int newPassengerCount
+    ) {
+        afterCommit(() -> {
+            State current = state;
+            current.apply(flightId, oldStatus, -1, -oldPassengerCount);
+            current.apply(flightId, newStatus, 1, newPassengerCount);
+        });
+    }
+
+    public void flightRemoved(Long flightId) {
+        afterCommit(() -> {
+            State current = state;
+            StatusCounters flight = current.flights.remove(flightId);
+
+            if (flight != null) {
+                flight.counters.forEach((status, counter) ->
+                        current.total.add(status, -counter.bookings.sum(), -counter.passengers.sum()));
+            }
+        });
+    }
+
+    public long count(BookingStatus status) {
+        return state.total.counters.get(status).bookings.sum();
+    }
+
+    public BookingStatistics statistics() {
+        return state.total.toStatistics();
+    }
+
+    public BookingStatistics statistics(Long flightId) {
+        StatusCounters flight = state.flights.get(flightId);
+
+        return flight == null ? new StatusCounters().toStatistics() : flight.toStatistics();
+    }
+
+    @Scheduled(
+            fixedDelayString = "${booking.statistics.reconcile-interval:5m}",
+            initialDelayString = "${booking.statistics.reconcile-initial-delay:0s}"
+    )
+    public void reconcile() {
+        State rebuilt = new State();
+
+        for (BookingAggregate aggregate : repository.aggregateByFlightAndStatus()) {
+            rebuilt.apply(
+                    aggregate.getFlightId(),
+                    aggregate.getStatus(),
+                    aggregate.getBookingCount(),
+                    aggregate.getPassengerCount()
+            );
+        }
+
+        state = rebuilt;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+    private static final class State {
+
+        private final StatusCounters total = new StatusCounters();
+        private final Map<Long, StatusCounters> flights = new ConcurrentHashMap<>();
+
+        void apply(Long flightId, BookingStatus status, long bookings, long passengers) {
+            total.add(status, bookings, passengers);
+            flights.computeIfAbsent(flightId, id -> new StatusCounters()).add(status, bookings, passengers);
+        }
+
+    }
+
+    private static final class StatusCounters {
+
+        // Filled for every status up front, so the map is never written after construction.
+        private final Map<BookingStatus, Counter> counters = new EnumMap<>(BookingStatus.class);
+
+        StatusCounters() {
+            for (BookingStatus status : BookingStatus.values()) {
+                counters.put(status, new Counter());
+            }
+        }
+
+        void add(BookingStatus status, long bookings, long passengers) {
+            Counter counter = counters.get(status);
+            counter.bookings.add(bookings);
+            counter.passengers.add(passengers);
+        }
+
+        BookingStatistics toStatistics() {
+            long bookingCount = 0;
+            long passengerCount = 0;
+            Map<BookingStatus, Integer> bookingCountByStatus = new EnumMap<>(BookingStatus.class);
+
+            for (Map.Entry<BookingStatus, Counter> entry : counters.entrySet()) {
+                long bookings = entry.getValue().bookings.sum();
+
+                bookingCount += bookings;
+                passengerCount += entry.getValue().passengers.sum();
+                bookingCountByStatus.put(entry.getKey(), (int) bookings);
+            }
+
+            return new BookingStatistics(
+                    bookingCount == 0 ? 0f : (float) passengerCount / bookingCount,
+                    (int) passengerCount,
+                    (int) bookingCount,
+                    bookingCountByStatus
+            );
+        }
+
+    }
+
+    private static final class Counter {
+
+        private final LongAdder bookings = new LongAdder();
+        private final LongAdder passengers = new LongAdder();
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package io.github.bagdad.ticketbooking.service;
+
+import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.model.BookingState;
+import io.github.bagdad.ticketbooking.model.BookingStatusView;
+import io.github.bagdad.ticketbooking.repository.BookingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Saga state of recently touched bookings, so clients can follow a booking without reading the
+ * table. {@link BookingService} reports every transition; an entry is dropped
+ * {@code booking.status-cache.ttl} after its last change and read from the table again on demand.
+ * <p>
+ * Transitions are ordered by the booking's {@code updatedAt}, so a late after-commit write never
+ * replaces a newer state. Bookings deleted together with their flight keep their last state until
+ * the entry expires.
+ */
+@Component
+public class BookingStatusCache {
+
+    private final BookingRepository repository;
+    private final long ttlNanos;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<BookingStatusView>> waiters = new ConcurrentHashMap<>();
+
+    public BookingStatusCache(
+            BookingRepository repository,
+            @Value("${booking.status-cache.ttl:10m}") Duration ttl
+    ) {
+        this.repository = repository;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * Returns the current state, from the cache or else from the table.
+     */
+    public Optional<BookingStatusView> get(Long bookingId) {
+        Entry entry = entries.get(bookingId);
+
+        if (entry != null) {
+            return Optional.of(entry.view());
+        }
+
+        return repository.findById(bookingId).map(booking -> {
+            BookingStatusView view = view(booking);
+            apply(view);
+            return view;
+        });
+    }
+
+    /**
+     * Completes with the booking's next settled state, or with null once it is no longer tracked.
+     */
+    public CompletableFuture<BookingStatusView> awaitSettled(Long bookingId) {
+        CompletableFuture<BookingStatusView> future = waiters.computeIfAbsent(bookingId, id -> new CompletableFuture<>());
+
+        // The booking may have settled before the waiter was registered.
+        Entry entry = entries.get(bookingId);
+        if (entry != null && entry.view().getStatus().isSettled()) {
+            complete(bookingId, entry.view());
+        }
+
+        return future;
+    }
+
+    /**
+     * Records the booking's stored status, after commit when called inside a transaction.
+     */
+    public void changed(Booking booking) {
+        BookingStatusView view = view(booking);
+        afterCommit(() -> apply(view));
+    }
+
+    /**
+     * Records that the booking was deleted as rejected or cancelled.
+     */
+    public void deleted(Long bookingId, BookingState state) {
+        BookingStatusView view = new BookingStatusView(bookingId, state, LocalDateTime.now());
+        afterCommit(() -> apply(view));
+    }
+
+    @Scheduled(fixedDelayString = "${booking.status-cache.evict-interval:1m}")
+    public void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.storedAtNanos() > ttlNanos);
+
+        waiters.forEach((bookingId, future) -> {
+            if (!entries.containsKey(bookingId) && waiters.remove(bookingId, future)) {
+                future.complete(null);
+            }
+        });
+    }
+
+    private void apply(BookingStatusView view) {
+        Entry candidate = new Entry(view, System.nanoTime());
+        Entry stored = entries.merge(view.getId(), candidate, (current, next) ->
+                current.view().getUpdatedAt().isAfter(next.view().getUpdatedAt()) ? current : next);
+
+        if (stored == candidate && view.getStatus().isSettled()) {
+            complete(view.getId(), view);
+        }
+    }
+
+    private void complete(Long bookingId, BookingStatusView view) {
+        CompletableFuture<BookingStatusView> future = waiters.remove(bookingId);
+
+        if (future != null) {
+            future.complete(view);
+        }
+    }
+
+    private static BookingStatusView view(Booking booking) {
+        return new BookingStatusView(booking.getId(), BookingState.of(booking.getStatus()), booking.getUpdatedAt());
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+    private record Entry(BookingStatusView view, long storedAtNanos) {
+    }
+
+}
@@ -0,0 +1,66 @@
+package io.github.bagdad.ticketbooking.service;
+
+import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.model.BookingStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * How long bookings stay PENDING: {@code booking.pending.duration} is recorded when the saga
+ * settles a booking, by outcome, and {@code booking.pending} is the number still waiting.
+ */
+@Component
+public class PendingBookingMetrics {
+
+    public enum Outcome { CONFIRMED, REJECTED, UPDATE_CONFIRMED, UPDATE_REJECTED }
+
+    private final Map<Outcome, Timer> durations = new EnumMap<>(Outcome.class);
+
+    public PendingBookingMetrics(MeterRegistry registry, BookingStatisticsAccumulator statistics) {
+        for (Outcome outcome : Outcome.values()) {
+            durations.put(outcome, Timer.builder("booking.pending.duration")
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+
+        Gauge.builder("booking.pending", statistics, s -> s.count(BookingStatus.PENDING))
+                .register(registry);
+    }
+
+    /**
+     * Records the time since the booking last went PENDING, which is its {@code updatedAt} as read
+     * before settling it. The sample is taken now but recorded once the transaction commits, so a
+     * redelivered event that rolled back is not counted twice.
+     */
+    public void settled(Booking booking, Outcome outcome) {
+        if (booking.getStatus() == BookingStatus.PENDING && booking.getUpdatedAt() != null) {
+            Duration pending = Duration.between(booking.getUpdatedAt(), LocalDateTime.now());
+            afterCommit(() -> durations.get(outcome).record(pending));
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
+}
@@ -0,0 +1,2 @@
+-- Used by the flight cancellation delete and the statistics reconciliation.
+CREATE INDEX IF NOT EXISTS idx_booking_flight_id_status ON bookings(flight_id, status);
@@ -0,0 +1,12 @@
+-- Messages written in the same transaction as the state change they describe and published
+-- afterwards by the outbox relay. Rows are deleted once the broker has confirmed them.
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id BIGSERIAL PRIMARY KEY,
+    exchange VARCHAR(255) NOT NULL,
+    routing_key VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100),
+    header_names TEXT[] NOT NULL,
+    header_values TEXT[] NOT NULL,
+    body BYTEA NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
@@ -0,0 +1,8 @@
+-- Ids of consumed events, written in the same transaction as their effect so a redelivered event
+-- is recognised and skipped. Rows older than messaging.idempotency.retention are purged.
+CREATE TABLE IF NOT EXISTS processed_events (
+    event_id UUID PRIMARY KEY,
+    processed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS idx_processed_events_processed_at ON processed_events(processed_at);
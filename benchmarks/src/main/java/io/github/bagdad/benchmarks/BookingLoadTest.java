@@ -0,0 +1,303 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.benchmarks.BookingTracker.Kind;
+import io.github.bagdad.flightmanagement.FlightManagementApplication;
+import io.github.bagdad.ticketbooking.TicketBookingApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the booking saga end to end: both services run in this JVM against {@link EmbeddedBroker}
+ * and {@link EmbeddedDatabases}, and bookings are created and updated over HTTP at a fixed rate.
+ * Reports confirmation latency, throughput and, once the saga has drained, every flight whose
+ * seats disagree with its confirmed bookings.
+ * <p>
+ * {@code mvn -pl benchmarks -am package && java -cp benchmarks/target/benchmarks.jar
+ * io.github.bagdad.benchmarks.BookingLoadTest --rate=500 --duration=60s}
+ * <p>
+ * Options: {@code rate} (requests per second), {@code duration}, {@code update-ratio},
+ * {@code flights}, {@code seats} per flight, {@code max-passengers} per booking,
+ * {@code drain-timeout} and {@code poll-interval}. Both services read their own
+ * {@code application.yaml} from the source tree, see {@link EmbeddedDatabases}.
+ */
+public final class BookingLoadTest {
+
+    private final Options options;
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final JsonMapper json = JsonMapper.builder().build();
+
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+
+    private BookingLoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        try (EmbeddedDatabases databases = EmbeddedDatabases.start();
+             EmbeddedBroker broker = EmbeddedBroker.start()) {
+
+            List<Long> flightIds = databases.seedFlights(options.flights(), options.seats());
+
+            int flightPort = EmbeddedBroker.freePort();
+            int bookingPort = EmbeddedBroker.freePort();
+
+            try (ConfigurableApplicationContext flightService = ServiceLauncher.start(FlightManagementApplication.class,
+                         "FlightManagement", flightPort, databases.jdbcUrl(EmbeddedDatabases.FLIGHT_DB), broker.port);
+                 ConfigurableApplicationContext bookingService = ServiceLauncher.start(TicketBookingApplication.class,
+                         "TicketBooking", bookingPort, databases.jdbcUrl(EmbeddedDatabases.BOOKING_DB), broker.port)) {
+
+                new BookingLoadTest(options).run(databases, flightIds, bookingPort);
+            }
+        }
+    }
+
+    private void run(EmbeddedDatabases databases, List<Long> flightIds, int bookingPort) throws InterruptedException {
+        BookingTracker tracker = new BookingTracker(new JdbcTemplate(databases.bookings), options.pollInterval().toNanos());
+        Thread poller = Thread.ofPlatform().name("booking-tracker").start(tracker);
+
+        URI createUri = URI.create("http://localhost:" + bookingPort + "/api/booking/create");
+        URI updateUri = URI.create("http://localhost:" + bookingPort + "/api/booking/update");
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long startedAt = System.nanoTime();
+        long endsAt = startedAt + options.duration().toNanos();
+
+        System.out.printf("%nOffering %d requests/s for %s against %d flights%n", options.rate(), options.duration(), flightIds.size());
+
+        for (long next = startedAt; next < endsAt; next += intervalNanos) {
+            long scheduledAt = next;
+            long wait = scheduledAt - System.nanoTime();
+
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int passengerCount = 1 + random.nextInt(options.maxPassengers());
+            Long bookingId = random.nextDouble() < options.updateRatio() ? tracker.takeIdle() : null;
+
+            if (bookingId == null) {
+                Long flightId = flightIds.get(random.nextInt(flightIds.size()));
+                send(createUri, "flightId=" + flightId + "&passengerCount=" + passengerCount)
+                        .thenAccept(id -> tracker.submitted(Kind.CREATE, id, scheduledAt, passengerCount));
+            }
+            else {
+                // Never request the count the booking already has, that would read as rejected.
+                int newCount = passengerCount == options.maxPassengers() ? 1 : passengerCount + 1;
+                send(updateUri, "id=" + bookingId + "&passengerCount=" + newCount)
+                        .whenComplete((id, error) -> {
+                            if (error == null) {
+                                tracker.submitted(Kind.UPDATE, id, scheduledAt, newCount);
+                            }
+                            else {
+                                tracker.returnIdle(bookingId);
+                            }
+                        });
+            }
+        }
+
+        long sendingTook = System.nanoTime() - startedAt;
+        long drainUntil = System.nanoTime() + options.drainTimeout().toNanos();
+
+        // Let in-flight HTTP calls register before checking whether anything is outstanding.
+        TimeUnit.MILLISECONDS.sleep(500);
+
+        while (tracker.outstanding() > 0 && System.nanoTime() < drainUntil) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+
+        tracker.stop();
+        poller.join();
+
+        report(tracker, startedAt, sendingTook);
+        checkSeats(databases, flightIds);
+    }
+
+    private CompletableFuture<Long> send(URI uri, String form) {
+        sent.incrementAndGet();
+
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+
+        return http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+
+                    return json.readTree(response.body()).get("id").asLong();
+                })
+                .whenComplete((id, error) -> {
+                    if (error != null) {
+                        String path = uri.getPath();
+                        errors.computeIfAbsent(path + ": " + rootCause(error).getMessage(), key -> new AtomicLong())
+                                .incrementAndGet();
+                    }
+                });
+    }
+
+    private void report(BookingTracker tracker, long startedAt, long sendingTook) {
+        double sendingSeconds = sendingTook / 1e9;
+        double resolvingSeconds = Math.max(tracker.lastResolvedAt() - startedAt, 1) / 1e9;
+        long confirmed = tracker.outcomes().getOrDefault("create confirmed", 0L)
+                + tracker.outcomes().getOrDefault("update confirmed", 0L);
+
+        System.out.printf("%nSent %d requests in %.1fs (%.0f/s)%n", sent.get(), sendingSeconds, sent.get() / sendingSeconds);
+        System.out.printf("Confirmed %d bookings and updates in %.1fs (%.0f/s)%n", confirmed, resolvingSeconds, confirmed / resolvingSeconds);
+
+        new TreeMap<>(tracker.outcomes()).forEach((outcome, count) -> System.out.printf("  %-18s %d%n", outcome, count));
+
+        if (tracker.outstanding() > 0) {
+            System.out.printf("  %-18s %d%n", "unresolved", tracker.outstanding());
+        }
+
+        errors.forEach((error, count) -> System.out.printf("  error %s: %d%n", error, count.get()));
+
+        System.out.printf("%nConfirmation latency (ms)       p50      p99      max%n");
+        printLatency("create", tracker.latencies(Kind.CREATE));
+        printLatency("update", tracker.latencies(Kind.UPDATE));
+    }
+
+    private static void printLatency(String label, long[] sorted) {
+        if (sorted.length == 0) {
+            System.out.printf("  %-28s %8s%n", label, "-");
+            return;
+        }
+
+        System.out.printf("  %-28s %8.1f %8.1f %8.1f%n",
+                label,
+                percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.99) / 1e6,
+                sorted[sorted.length - 1] / 1e6);
+    }
+
+    static long percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    /**
+     * Compares each flight's sold seats with the passengers of its confirmed bookings. Flights with
+     * bookings still pending are skipped, their seats may legitimately be ahead.
+     */
+    private static void checkSeats(EmbeddedDatabases databases, List<Long> flightIds) {
+        Map<Long, long[]> bookedByFlight = new HashMap<>();
+
+        new JdbcTemplate(databases.bookings).query(
+                "SELECT flight_id, status, SUM(passenger_count) AS passengers FROM bookings GROUP BY flight_id, status",
+                (RowCallbackHandler) rs -> {
+                    long[] booked = bookedByFlight.computeIfAbsent(rs.getLong("flight_id"), id -> new long[2]);
+                    booked["CONFIRMED".equals(rs.getString("status")) ? 0 : 1] += rs.getLong("passengers");
+                }
+        );
+
+        int oversold = 0;
+        int drifted = 0;
+        int skipped = 0;
+
+        System.out.printf("%nSeat consistency%n");
+
+        for (Map<String, Object> flight : new JdbcTemplate(databases.flights).queryForList(
+                "SELECT id, capacity, passenger_count FROM flights WHERE id = ANY(?) ORDER BY id",
+                (Object) flightIds.toArray(new Long[0]))) {
+
+            long id = ((Number) flight.get("id")).longValue();
+            long capacity = ((Number) flight.get("capacity")).longValue();
+            long remaining = ((Number) flight.get("passenger_count")).longValue();
+            long[] booked = bookedByFlight.getOrDefault(id, new long[2]);
+
+            if (booked[1] > 0) {
+                skipped++;
+            }
+            else if (booked[0] > capacity || remaining < 0) {
+                oversold++;
+                System.out.printf("  flight %d OVERSOLD: capacity %d, confirmed %d, remaining %d%n", id, capacity, booked[0], remaining);
+            }
+            else if (capacity - remaining != booked[0]) {
+                drifted++;
+                System.out.printf("  flight %d DRIFT: %d seats sold, %d passengers confirmed%n", id, capacity - remaining, booked[0]);
+            }
+        }
+
+        System.out.printf("  %d flights: %d oversold, %d drifted, %d not checked (bookings pending)%n",
+                flightIds.size(), oversold, drifted, skipped);
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error.getCause() != null) {
+            error = error.getCause();
+        }
+
+        return error;
+    }
+
+    private record Options(
+            int rate,
+            Duration duration,
+            double updateRatio,
+            int flights,
+            int seats,
+            int maxPassengers,
+            Duration drainTimeout,
+            Duration pollInterval
+    ) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("rate", "200")),
+                    duration(values.getOrDefault("duration", "60s")),
+                    Double.parseDouble(values.getOrDefault("update-ratio", "0.2")),
+                    Integer.parseInt(values.getOrDefault("flights", "20")),
+                    Integer.parseInt(values.getOrDefault("seats", "300")),
+                    Integer.parseInt(values.getOrDefault("max-passengers", "4")),
+                    duration(values.getOrDefault("drain-timeout", "30s")),
+                    duration(values.getOrDefault("poll-interval", "10ms"))
+            );
+        }
+
+        private static Duration duration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+
+            return Duration.parse("PT" + value.toUpperCase());
+        }
+
+    }
+
+}
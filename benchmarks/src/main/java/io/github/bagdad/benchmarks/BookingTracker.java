@@ -0,0 +1,173 @@
+package io.github.bagdad.benchmarks;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Follows submitted bookings until the saga resolves them, by polling the bookings table.
+ * <p>
+ * A booking is registered once its HTTP call returned, when the row is committed as PENDING. It
+ * is resolved when the row reads CONFIRMED (update rejections revert the passenger count) or,
+ * for creates, when the row is gone (rejected). Confirmation latency runs from the request's
+ * scheduled send time, so a slow service is not hidden by a slow generator; it is accurate to
+ * one poll interval.
+ */
+final class BookingTracker implements Runnable {
+
+    private static final int IDS_PER_POLL = 10_000;
+
+    enum Kind { CREATE, UPDATE }
+
+    private record Pending(Kind kind, long scheduledAt, int passengerCount) {
+    }
+
+    private final JdbcTemplate bookings;
+    private final long pollIntervalNanos;
+
+    private final Map<Long, Pending> outstanding = new ConcurrentHashMap<>();
+
+    // Confirmed bookings not being updated right now, so each booking has one update in flight at most.
+    private final List<Long> idle = new ArrayList<>();
+
+    // Written by the polling thread only, read once it has stopped.
+    private final Map<Kind, List<Long>> latencies = Map.of(Kind.CREATE, new ArrayList<>(), Kind.UPDATE, new ArrayList<>());
+    private final Map<String, Long> outcomes = new HashMap<>();
+
+    private final AtomicLong lastResolvedAt = new AtomicLong();
+    private volatile boolean running = true;
+
+    BookingTracker(JdbcTemplate bookings, long pollIntervalNanos) {
+        this.bookings = bookings;
+        this.pollIntervalNanos = pollIntervalNanos;
+    }
+
+    void submitted(Kind kind, Long bookingId, long scheduledAt, int passengerCount) {
+        outstanding.put(bookingId, new Pending(kind, scheduledAt, passengerCount));
+    }
+
+    /**
+     * Takes a random confirmed booking for an update, or returns null if there is none yet.
+     */
+    Long takeIdle() {
+        synchronized (idle) {
+            if (idle.isEmpty()) {
+                return null;
+            }
+
+            int index = ThreadLocalRandom.current().nextInt(idle.size());
+            Long bookingId = idle.get(index);
+            idle.set(index, idle.get(idle.size() - 1));
+            idle.remove(idle.size() - 1);
+
+            return bookingId;
+        }
+    }
+
+    void returnIdle(Long bookingId) {
+        synchronized (idle) {
+            idle.add(bookingId);
+        }
+    }
+
+    int outstanding() {
+        return outstanding.size();
+    }
+
+    long lastResolvedAt() {
+        return lastResolvedAt.get();
+    }
+
+    void stop() {
+        running = false;
+    }
+
+    long[] latencies(Kind kind) {
+        long[] sorted = latencies.get(kind).stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    Map<String, Long> outcomes() {
+        return outcomes;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            long startedAt = System.nanoTime();
+
+            if (!outstanding.isEmpty()) {
+                poll();
+            }
+
+            long sleep = pollIntervalNanos - (System.nanoTime() - startedAt);
+
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void poll() {
+        Long[] ids = outstanding.keySet().toArray(new Long[0]);
+
+        for (int from = 0; from < ids.length; from += IDS_PER_POLL) {
+            Long[] chunk = Arrays.copyOfRange(ids, from, Math.min(ids.length, from + IDS_PER_POLL));
+            Map<Long, int[]> rows = new HashMap<>();
+
+            bookings.query(
+                    "SELECT id, status, passenger_count FROM bookings WHERE id = ANY(?)",
+                    (RowCallbackHandler) rs -> rows.put(rs.getLong("id"), new int[] {
+                            "CONFIRMED".equals(rs.getString("status")) ? 1 : 0,
+                            rs.getInt("passenger_count")
+                    }),
+                    (Object) chunk
+            );
+
+            long now = System.nanoTime();
+
+            for (Long id : chunk) {
+                Pending pending = outstanding.get(id);
+                int[] row = rows.get(id);
+
+                if (row == null) {
+                    resolve(id, now, pending.kind() == Kind.CREATE ? "create rejected" : "update lost");
+                }
+                else if (row[0] == 1) {
+                    boolean confirmed = pending.kind() == Kind.CREATE || row[1] == pending.passengerCount();
+
+                    if (confirmed) {
+                        latencies.get(pending.kind()).add(now - pending.scheduledAt());
+                    }
+
+                    resolve(id, now, pending.kind() == Kind.CREATE ? "create confirmed"
+                            : confirmed ? "update confirmed" : "update rejected");
+                    returnIdle(id);
+                }
+            }
+        }
+    }
+
+    private void resolve(Long id, long now, String outcome) {
+        outstanding.remove(id);
+        outcomes.merge(outcome, 1L, Long::sum);
+        lastResolvedAt.set(now);
+    }
+
+}
@@ -0,0 +1,97 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.helper.CSVHelper;
+import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.ticketbooking.model.Booking;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV export and import of both services' CSVHelper classes, without any database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CsvBenchmark {
+
+    @Param({"10000"})
+    public int rows;
+
+    private List<Flight> flights;
+    private List<Booking> bookings;
+    private byte[] flightCsv;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        flights = Fixtures.flights(rows);
+        bookings = Fixtures.bookings(rows, rows);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportFlights(flights, out);
+        flightCsv = out.toByteArray();
+    }
+
+    @Benchmark
+    public void flightExport(Blackhole blackhole) throws IOException {
+        exportFlights(flights, new BlackholeOutputStream(blackhole));
+    }
+
+    @Benchmark
+    public void flightImport(Blackhole blackhole) throws IOException {
+        try (CSVParser parser = CSVHelper.openParser(new ByteArrayInputStream(flightCsv))) {
+            for (CSVRecord record : parser) {
+                blackhole.consume(CSVHelper.parse(record));
+            }
+        }
+    }
+
+    @Benchmark
+    public InputStream bookingExport() throws IOException {
+        return io.github.bagdad.ticketbooking.helper.CSVHelper.writeCsv(bookings);
+    }
+
+    private static void exportFlights(List<Flight> flights, OutputStream out) throws IOException {
+        CSVPrinter printer = CSVHelper.openPrinter(out);
+
+        for (Flight flight : flights) {
+            CSVHelper.print(printer, flight);
+        }
+
+        printer.flush();
+    }
+
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+
+    }
+
+}
@@ -0,0 +1,94 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * A throwaway local PostgreSQL with the flight and booking schemas, migrated from the services'
+ * own Flyway scripts. Scripts are read from the source tree ({@code -Dairline.root}, the current
+ * directory by default) because both services ship {@code db/migration} on the same classpath.
+ */
+final class EmbeddedDatabases implements AutoCloseable {
+
+    static final String USER = "postgres";
+    static final String FLIGHT_DB = "flight_db";
+    static final String BOOKING_DB = "booking_db";
+
+    private final EmbeddedPostgres postgres;
+
+    final DataSource flights;
+    final DataSource bookings;
+
+    private EmbeddedDatabases(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+        this.flights = postgres.getDatabase(USER, FLIGHT_DB);
+        this.bookings = postgres.getDatabase(USER, BOOKING_DB);
+    }
+
+    static EmbeddedDatabases start() throws IOException, SQLException {
+        EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE DATABASE " + FLIGHT_DB);
+            statement.execute("CREATE DATABASE " + BOOKING_DB);
+        }
+
+        EmbeddedDatabases databases = new EmbeddedDatabases(postgres);
+        migrate(databases.flights, "FlightManagement");
+        migrate(databases.bookings, "TicketBooking");
+
+        return databases;
+    }
+
+    /**
+     * JDBC URL of one of the databases, for handing to a service's {@code spring.datasource.url}.
+     */
+    String jdbcUrl(String database) {
+        return postgres.getJdbcUrl(USER, database);
+    }
+
+    /**
+     * Inserts {@link Fixtures#flights} with the given number of seats each and returns their ids.
+     */
+    List<Long> seedFlights(int count, int seats) {
+        List<Flight> flights = Fixtures.flights(count);
+        flights.forEach(flight -> flight.setPassengerCount(seats));
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(this.flights);
+        new FlightRepository(jdbcTemplate).saveAll(flights);
+
+        return jdbcTemplate.queryForList("SELECT id FROM flights ORDER BY id", Long.class);
+    }
+
+    private static void migrate(DataSource dataSource, String service) {
+        Path scripts = serviceResources(service).resolve("db/migration");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("filesystem:" + scripts)
+                .load()
+                .migrate();
+    }
+
+    static Path serviceResources(String service) {
+        return Path.of(System.getProperty("airline.root", "."), service, "src/main/resources").toAbsolutePath();
+    }
+
+    @Override
+    public void close() throws IOException {
+        postgres.close();
+    }
+
+}
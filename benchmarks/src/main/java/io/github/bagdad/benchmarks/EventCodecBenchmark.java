@@ -0,0 +1,65 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.config.RabbitConfig;
+import io.github.bagdad.models.events.BookingCreated;
+import io.github.bagdad.models.events.BookingUpdated;
+import io.github.bagdad.models.events.FlightCancelled;
+import io.github.bagdad.models.messaging.BinaryEventMessageConverter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode cost of one event with FlightManagement's configured JSON converter
+ * and with {@link BinaryEventMessageConverter}. Body sizes are printed at the start of each trial.
+ * <p>
+ * {@code mvn -pl benchmarks -am package && java -jar benchmarks/target/benchmarks.jar EventCodecBenchmark -prof gc}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EventCodecBenchmark {
+
+    @Param({"BookingCreated", "BookingUpdated", "FlightCancelled"})
+    public String eventType;
+
+    @Param({"json", "binary"})
+    public String format;
+
+    private MessageConverter converter;
+    private Object event;
+    private Message encoded;
+
+    @Setup
+    public void setUp() {
+        converter = "binary".equals(format) ? new BinaryEventMessageConverter() : new RabbitConfig().jsonMessageConverter();
+
+        event = switch (eventType) {
+            case "BookingCreated" -> new BookingCreated(48_213_907L, 1_204_331L, 3);
+            case "BookingUpdated" -> new BookingUpdated(48_213_907L, 1_204_331L, 3, 5);
+            case "FlightCancelled" -> new FlightCancelled(1_204_331L);
+            default -> throw new IllegalArgumentException(eventType);
+        };
+
+        encoded = converter.toMessage(event, new MessageProperties());
+
+        System.out.printf("%n%s as %s: %d bytes%n", eventType, format, encoded.getBody().length);
+    }
+
+    @Benchmark
+    public Message encode() {
+        return converter.toMessage(event, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return converter.fromMessage(encoded);
+    }
+
+}
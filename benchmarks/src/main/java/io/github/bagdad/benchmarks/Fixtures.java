@@ -0,0 +1,75 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.model.BookingStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data, so runs of different releases work on identical input.
+ */
+final class Fixtures {
+
+    static final String[] CITIES = {
+            "Moscow", "Kazan", "Sochi", "Novosibirsk", "Yekaterinburg",
+            "Samara", "Omsk", "Ufa", "Perm", "Volgograd"
+    };
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2026, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+    private Fixtures() {
+    }
+
+    static List<Flight> flights(int count) {
+        Random random = new Random(42);
+        LocalDateTime now = START.toLocalDateTime();
+        List<Flight> flights = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Flight flight = new Flight();
+            OffsetDateTime departure = START.plusMinutes(random.nextInt(365 * 24 * 60));
+
+            flight.setNumber("SU" + (1000 + i % 9000));
+            flight.setFromCity(CITIES[random.nextInt(CITIES.length)]);
+            flight.setToCity(CITIES[random.nextInt(CITIES.length)]);
+            flight.setDeparture(departure);
+            flight.setArrival(departure.plusMinutes(60 + random.nextInt(600)));
+            flight.setPassengerCount(random.nextInt(501));
+            flight.setTicketPrice(BigDecimal.valueOf(1000 + random.nextInt(50_000), 2).movePointRight(1));
+            flight.setCreatedAt(now);
+            flight.setUpdatedAt(now);
+
+            flights.add(flight);
+        }
+
+        return flights;
+    }
+
+    static List<Booking> bookings(int count, int flights) {
+        Random random = new Random(42);
+        LocalDateTime now = START.toLocalDateTime();
+        List<Booking> bookings = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Booking booking = new Booking();
+
+            booking.setFlightId(1L + random.nextInt(flights));
+            booking.setPassengerCount(1 + random.nextInt(6));
+            booking.setStatus(random.nextInt(10) == 0 ? BookingStatus.PENDING : BookingStatus.CONFIRMED);
+            booking.setCreatedAt(now);
+            booking.setUpdatedAt(now);
+
+            bookings.add(booking);
+        }
+
+        return bookings;
+    }
+
+}
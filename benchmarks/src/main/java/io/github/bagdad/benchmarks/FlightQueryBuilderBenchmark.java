@@ -0,0 +1,62 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.repository.FlightColumn;
+import io.github.bagdad.flightmanagement.repository.FlightQueryBuilder;
+import io.github.bagdad.flightmanagement.repository.FlightSort;
+import io.github.bagdad.models.requests.FlightQueryRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL building behind {@code FlightRepository.query} and {@code queryPage}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FlightQueryBuilderBenchmark {
+
+    private FlightQueryRequest routeQuery;
+    private FlightQueryRequest fullQuery;
+    private Set<FlightColumn> projection;
+
+    @Setup
+    public void setUp() {
+        OffsetDateTime from = OffsetDateTime.of(2026, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+
+        routeQuery = new FlightQueryRequest(
+                null, "Moscow", "Kazan", from, from.plusDays(7),
+                null, null, null, null, null, null
+        );
+        fullQuery = new FlightQueryRequest(
+                "SU1234", "Moscow", "Kazan", from, from.plusDays(7),
+                from, from.plusDays(8), 1, 500,
+                new BigDecimal("1000.00"), new BigDecimal("25000.00")
+        );
+        projection = FlightColumn.projection(List.of("number", "departure", "ticketPrice"), FlightSort.DEPARTURE);
+    }
+
+    @Benchmark
+    public FlightQueryBuilder.SqlQuery routeSelect() {
+        return FlightQueryBuilder.select(routeQuery);
+    }
+
+    @Benchmark
+    public FlightQueryBuilder.SqlQuery fullSelect() {
+        return FlightQueryBuilder.select(fullQuery);
+    }
+
+    @Benchmark
+    public FlightQueryBuilder.SqlQuery projectedPage() {
+        return FlightQueryBuilder.page(routeQuery, FlightSort.DEPARTURE, false, null, projection, 51);
+    }
+
+}
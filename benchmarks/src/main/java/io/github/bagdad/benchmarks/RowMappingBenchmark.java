@@ -0,0 +1,98 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.model.Flight;
+import io.github.bagdad.flightmanagement.repository.FlightMapper;
+import io.github.bagdad.flightmanagement.repository.FlightRepository;
+import io.github.bagdad.models.requests.FlightQueryRequest;
+import io.github.bagdad.ticketbooking.model.Booking;
+import io.github.bagdad.ticketbooking.repository.BookingMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading rows through {@link FlightMapper} and {@link BookingMapper}, and a route search through
+ * {@link FlightRepository#query}, against an embedded PostgreSQL seeded with {@value #ROWS} rows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMappingBenchmark {
+
+    private static final int ROWS = 20_000;
+
+    @Param({"1000"})
+    public int limit;
+
+    private EmbeddedDatabases databases;
+    private JdbcTemplate flightJdbc;
+    private JdbcTemplate bookingJdbc;
+    private FlightRepository flightRepository;
+
+    private final FlightMapper flightMapper = new FlightMapper();
+    private final BookingMapper bookingMapper = new BookingMapper();
+
+    private FlightQueryRequest routeQuery;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        databases = EmbeddedDatabases.start();
+        flightJdbc = new JdbcTemplate(databases.flights);
+        bookingJdbc = new JdbcTemplate(databases.bookings);
+        flightRepository = new FlightRepository(flightJdbc);
+
+        flightRepository.saveAll(Fixtures.flights(ROWS));
+
+        List<Booking> bookings = Fixtures.bookings(ROWS, ROWS);
+        bookingJdbc.batchUpdate(
+                "INSERT INTO bookings (flight_id, passenger_count, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                bookings,
+                1000,
+                (ps, booking) -> {
+                    ps.setLong(1, booking.getFlightId());
+                    ps.setInt(2, booking.getPassengerCount());
+                    ps.setString(3, booking.getStatus().name());
+                    ps.setObject(4, booking.getCreatedAt());
+                    ps.setObject(5, booking.getUpdatedAt());
+                }
+        );
+
+        flightJdbc.execute("ANALYZE flights");
+        bookingJdbc.execute("ANALYZE bookings");
+
+        OffsetDateTime from = OffsetDateTime.of(2026, 3, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+        routeQuery = new FlightQueryRequest(
+                null, Fixtures.CITIES[0], Fixtures.CITIES[1],
+                from, from.plusMonths(3),
+                null, null, 1, null, null, null
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        databases.close();
+    }
+
+    @Benchmark
+    public List<Flight> flightMapper() {
+        return flightJdbc.query("SELECT * FROM flights ORDER BY id LIMIT ?", flightMapper, limit);
+    }
+
+    @Benchmark
+    public List<Booking> bookingMapper() {
+        return bookingJdbc.query("SELECT * FROM bookings ORDER BY id LIMIT ?", bookingMapper, limit);
+    }
+
+    @Benchmark
+    public List<Flight> flightRepositoryRouteQuery() {
+        return flightRepository.query(routeQuery);
+    }
+
+}
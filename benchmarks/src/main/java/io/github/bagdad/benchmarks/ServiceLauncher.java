@@ -0,0 +1,45 @@
+package io.github.bagdad.benchmarks;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Boots one of the services in this JVM against {@link EmbeddedDatabases} and {@link EmbeddedBroker}.
+ */
+final class ServiceLauncher {
+
+    private ServiceLauncher() {
+    }
+
+    static ConfigurableApplicationContext start(
+            Class<?> application,
+            String service,
+            int port,
+            String jdbcUrl,
+            int amqpPort,
+            String... profiles
+    ) {
+        Map<String, Object> properties = new HashMap<>();
+        // Both services have application.yaml at the classpath root, only the first one would be
+        // found. A directory location also picks up the profile-specific files next to it.
+        properties.put("spring.config.location", "file:" + EmbeddedDatabases.serviceResources(service) + "/");
+        properties.put("spring.application.name", service);
+        properties.put("server.port", port);
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", EmbeddedDatabases.USER);
+        properties.put("spring.datasource.password", "");
+        // EmbeddedDatabases has migrated already, from the right scripts.
+        properties.put("spring.flyway.enabled", false);
+        properties.put("spring.rabbitmq.host", "localhost");
+        properties.put("spring.rabbitmq.port", amqpPort);
+
+        return new SpringApplicationBuilder(application)
+                .properties(properties)
+                .profiles(profiles)
+                .run();
+    }
+
+}
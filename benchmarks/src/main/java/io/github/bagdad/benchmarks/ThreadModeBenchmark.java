@@ -0,0 +1,191 @@
+package io.github.bagdad.benchmarks;
+
+import io.github.bagdad.flightmanagement.FlightManagementApplication;
+import io.github.bagdad.ticketbooking.TicketBookingApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Request throughput and tail latency of {@code /api/flight/query} and {@code /api/booking/create}
+ * with the services on platform threads and then with the {@code virtual-threads} profile. Each
+ * endpoint is hit by a fixed number of concurrent clients that send their next request as soon as
+ * the previous one returned.
+ * <p>
+ * {@code java -cp benchmarks/target/benchmarks.jar io.github.bagdad.benchmarks.ThreadModeBenchmark
+ * 1000 10 30} runs 1000 clients, 10s warm-up and 30s measurement per endpoint and mode. Each mode
+ * runs with its own configuration, including the Hikari pool size of the profile.
+ */
+public final class ThreadModeBenchmark {
+
+    private static final String PLATFORM = "platform";
+    private static final String VIRTUAL = "virtual-threads";
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final int clients;
+    private final Duration warmup;
+    private final Duration measurement;
+
+    private ThreadModeBenchmark(int clients, Duration warmup, Duration measurement) {
+        this.clients = clients;
+        this.warmup = warmup;
+        this.measurement = measurement;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Duration warmup = Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 10);
+        Duration measurement = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 30);
+
+        ThreadModeBenchmark benchmark = new ThreadModeBenchmark(clients, warmup, measurement);
+        List<String> results = new ArrayList<>();
+
+        try (EmbeddedDatabases databases = EmbeddedDatabases.start();
+             EmbeddedBroker broker = EmbeddedBroker.start()) {
+
+            // SMALLINT seats, enough for every booking of both runs on most flights.
+            List<Long> flightIds = databases.seedFlights(200, 30_000);
+
+            for (String mode : List.of(PLATFORM, VIRTUAL)) {
+                String[] profiles = VIRTUAL.equals(mode) ? new String[] {VIRTUAL} : new String[0];
+                int flightPort = EmbeddedBroker.freePort();
+                int bookingPort = EmbeddedBroker.freePort();
+
+                try (ConfigurableApplicationContext flightService = ServiceLauncher.start(FlightManagementApplication.class,
+                             "FlightManagement", flightPort, databases.jdbcUrl(EmbeddedDatabases.FLIGHT_DB), broker.port, profiles);
+                     ConfigurableApplicationContext bookingService = ServiceLauncher.start(TicketBookingApplication.class,
+                             "TicketBooking", bookingPort, databases.jdbcUrl(EmbeddedDatabases.BOOKING_DB), broker.port, profiles)) {
+
+                    String query = "http://localhost:" + flightPort + "/api/flight/query?";
+                    URI create = URI.create("http://localhost:" + bookingPort + "/api/booking/create");
+
+                    results.add(benchmark.run(mode, "/api/flight/query", () -> get(URI.create(query + queryForm()))));
+                    results.add(benchmark.run(mode, "/api/booking/create", () -> form(create, createForm(flightIds))));
+                }
+            }
+        }
+
+        System.out.printf("%n%-16s %-20s %10s %9s %9s %9s %8s%n", "mode", "endpoint", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "errors");
+        results.forEach(System.out::println);
+    }
+
+    private String run(String mode, String endpoint, Supplier<HttpRequest> requests) {
+        System.out.printf("%n%s %s: %d clients, %s warm-up, %s measured%n", mode, endpoint, clients, warmup, measurement);
+
+        drive(requests, warmup);
+        Result result = drive(requests, measurement);
+
+        long[] sorted = result.latencies();
+        double seconds = measurement.toNanos() / 1e9;
+
+        return String.format("%-16s %-20s %10.0f %9.1f %9.1f %9.1f %8d",
+                mode,
+                endpoint,
+                sorted.length / seconds,
+                sorted.length == 0 ? 0 : BookingLoadTest.percentile(sorted, 0.50) / 1e6,
+                sorted.length == 0 ? 0 : BookingLoadTest.percentile(sorted, 0.99) / 1e6,
+                sorted.length == 0 ? 0 : BookingLoadTest.percentile(sorted, 0.999) / 1e6,
+                result.errors());
+    }
+
+    private Result drive(Supplier<HttpRequest> requests, Duration duration) {
+        long endsAt = System.nanoTime() + duration.toNanos();
+        long[][] perClient = new long[clients][];
+        AtomicLong errors = new AtomicLong();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+
+                executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+
+                    while (System.nanoTime() < endsAt) {
+                        long startedAt = System.nanoTime();
+
+                        try {
+                            HttpResponse<Void> response = http.send(requests.get(), HttpResponse.BodyHandlers.discarding());
+
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        }
+                        catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            break;
+                        }
+                        catch (Exception e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - startedAt;
+                    }
+
+                    // Read after the executor is closed, which happens-after every task.
+                    perClient[client] = Arrays.copyOf(latencies, count);
+                });
+            }
+        }
+
+        long[] all = Arrays.stream(perClient)
+                .flatMapToLong(Arrays::stream)
+                .sorted()
+                .toArray();
+
+        return new Result(all, errors.get());
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static HttpRequest form(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String queryForm() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] cities = Fixtures.CITIES;
+
+        return "fromCity=" + cities[random.nextInt(cities.length)] + "&toCity=" + cities[random.nextInt(cities.length)];
+    }
+
+    private static String createForm(List<Long> flightIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        return "flightId=" + flightIds.get(random.nextInt(flightIds.size())) + "&passengerCount=" + (1 + random.nextInt(4));
+    }
+
+    private record Result(long[] latencies, long errors) {
+    }
+
+}
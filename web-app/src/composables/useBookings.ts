@@ -1,5 +1,5 @@
 import { ref } from 'vue';
-import type { Booking, BookingCreate, BookingUpdate, BookingQuery, BookingStatistics } from '@/types/booking';
+import type { Booking, BookingCreate, BookingUpdate, BookingQuery, BookingStatistics, BookingStatusView } from '@/types/booking';
 
 const API_BASE = 'http://localhost:8082/api/booking';
 
@@ -49,6 +49,7 @@ export const useBookings = () => {
             if (!response.ok) throw new Error('Ошибка создания бронирования');
             const created = await response.json();
             bookings.value.push(created);
+            watchStatus(created.id);
             await fetchStatistics();
             return created;
         } catch (err) {
@@ -72,6 +73,7 @@ export const useBookings = () => {
             const updated = await response.json();
             const index = bookings.value.findIndex(b => b.id === booking.id);
             if (index !== -1) bookings.value[index] = updated;
+            watchStatus(updated.id);
             await fetchStatistics();
             return updated;
         } catch (err) {
@@ -80,6 +82,28 @@ export const useBookings = () => {
         }
     };
 
+    // Сервер присылает текущий статус и итоговый, после чего закрывает поток
+    const watchStatus = (id: number) => {
+        const source = new EventSource(`${API_BASE}/${id}/status/stream`);
+
+        source.addEventListener('status', (event) => {
+            const view: BookingStatusView = JSON.parse((event as MessageEvent).data);
+            if (view.status === 'PENDING') return;
+
+            if (view.status === 'REJECTED' || view.status === 'CANCELLED') {
+                bookings.value = bookings.value.filter(booking => booking.id !== view.id);
+            } else {
+                const booking = bookings.value.find(b => b.id === view.id);
+                if (booking) booking.status = view.status;
+            }
+
+            source.close();
+            fetchStatistics();
+        });
+
+        source.onerror = () => source.close();
+    };
+
     const deleteBooking = async (id: number) => {
         try {
             const formData = new FormData();
@@ -12,17 +12,15 @@ export const useFlights = () => {
         loading.value = true;
         error.value = null;
         try {
-            const formData = new FormData();
+            const params = new URLSearchParams();
             if (query) {
                 Object.entries(query).forEach(([key, value]) => {
-                    if (value) formData.append(key, value.toString());
+                    if (value) params.append(key, value.toString());
                 });
             }
 
-            const response = await fetch(`${API_BASE}/query`, {
-                method: 'POST',
-                body: formData,
-            });
+            // GET, so the browser revalidates its copy with the ETag instead of reloading the list
+            const response = await fetch(`${API_BASE}/query?${params}`);
 
             if (!response.ok) throw new Error('Ошибка загрузки рейсов');
             flights.value = await response.json();
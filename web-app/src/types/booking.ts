@@ -1,4 +1,4 @@
-export type BookingStatus = 'PENDING' | 'CONFIRMED' | 'CANCELLED' | 'COMPLETED';
+export type BookingStatus = 'PENDING' | 'CONFIRMED' | 'REJECTED' | 'CANCELLED' | 'COMPLETED';
 
 export interface Booking {
     id: number | null;
@@ -9,6 +9,12 @@ export interface Booking {
     updatedAt?: string;
 }
 
+export interface BookingStatusView {
+    id: number;
+    status: BookingStatus;
+    updatedAt?: string;
+}
+
 export interface BookingCreate {
     flightId: number;
     passengerCount: number;